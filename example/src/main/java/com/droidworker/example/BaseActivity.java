@@ -1,5 +1,6 @@
 package com.droidworker.example;
 
+import com.droidworker.pulltoloadview.LoadingLayoutPool;
 import com.droidworker.pulltoloadview.PullToLoadBaseView;
 import com.droidworker.pulltoloadview.PullToLoadListener;
 import com.droidworker.pulltoloadview.constant.LoadMode;
@@ -7,15 +8,21 @@ import com.droidworker.pulltoloadview.constant.LoadMode;
 import android.support.v7.app.AppCompatActivity;
 import android.view.Menu;
 import android.view.MenuItem;
-import android.view.View;
 
 /**
  * @author https://github.com/DroidWorkerLYF
  */
-public abstract class BaseActivity extends AppCompatActivity implements PullToLoadListener {
+public abstract class BaseActivity extends AppCompatActivity implements PullToLoadListener,
+        LoadingLayoutPool.Provider {
+    private LoadingLayoutPool mLoadingLayoutPool = new LoadingLayoutPool();
 
     protected abstract PullToLoadBaseView getPullToLoadView();
 
+    @Override
+    public LoadingLayoutPool getLoadingLayoutPool() {
+        return mLoadingLayoutPool;
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main_menu, menu);
@@ -59,11 +66,11 @@ public abstract class BaseActivity extends AppCompatActivity implements PullToLo
         return super.onOptionsItemSelected(item);
     }
 
-    protected void addEmptyView(View view){
-        getPullToLoadView().addConditionView(view, ConditionType.EMPTY);
+    protected void addEmptyView(int layoutId){
+        getPullToLoadView().addConditionView(layoutId, ConditionType.EMPTY);
     }
 
-    protected void addErrorView(View view){
-        getPullToLoadView().addConditionView(view, ConditionType.ERROR);
+    protected void addErrorView(int layoutId){
+        getPullToLoadView().addConditionView(layoutId, ConditionType.ERROR);
     }
 }
@@ -76,6 +76,10 @@ public class CustomLayout extends FrameLayout implements ILoadingLayout {
             //加载更多状态
             mImageView.startAnimation(mRotateAnimation);
             mTextView.setText(R.string.loading);
+        } else if (state == State.JUST_UPDATED) {
+            //刚刚更新过,没有重新请求
+            mImageView.clearAnimation();
+            mTextView.setText(R.string.just_updated);
         } else if (state == State.RESET) {
             //reset,停止动画
             mImageView.clearAnimation();
@@ -38,7 +38,7 @@ public class Adapter extends BaseRecyclerViewAdapter {
 
     public void updateCount() {
         mCount += 10;
-        notifyDataSetChanged();
+        notifyItemRangeInserted(mCount - 10, 10);
     }
 
     public void restoreCount() {
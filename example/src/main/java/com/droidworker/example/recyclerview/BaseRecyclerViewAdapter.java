@@ -6,6 +6,8 @@ import android.util.SparseIntArray;
 import android.view.View;
 import android.view.ViewGroup;
 
+import java.util.List;
+
 /**
  * RecyclerView的通用基础Adapter,封装了onCreateViewHolder方法,子类只需要实现
  * {@link #bindViewHolder}方法即可,
@@ -57,9 +59,31 @@ public abstract class BaseRecyclerViewAdapter
         bindData(universalViewHolder, position);
     }
 
+    @Override
+    public void onBindViewHolder(UniversalViewHolder universalViewHolder, int position,
+            List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            bindData(universalViewHolder, position);
+        } else {
+            bindData(universalViewHolder, position, payloads);
+        }
+    }
+
     protected abstract void bindData(UniversalViewHolder universalViewHolder,
             int position);
 
+    /**
+     * 局部刷新,通过{@link #notifyItemChanged(int, Object)}通知变化时调用,只更新payload对应的子视图.
+     * 默认全部重新绑定
+     * @param universalViewHolder ViewHolder
+     * @param position 位置
+     * @param payloads 不为空的payload列表,可能合并了多次通知
+     */
+    protected void bindData(UniversalViewHolder universalViewHolder, int position,
+            List<Object> payloads) {
+        bindData(universalViewHolder, position);
+    }
+
     public void setLayoutId(@LayoutRes int layoutId) {
         mTypeLayoutIdArray.put(0, layoutId);
     }
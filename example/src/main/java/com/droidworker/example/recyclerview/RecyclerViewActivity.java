@@ -4,14 +4,13 @@ import android.graphics.Color;
 import android.os.Bundle;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.Toolbar;
-import android.view.LayoutInflater;
 import android.view.MenuItem;
-import android.view.View;
 
 import com.droidworker.example.BaseActivity;
 import com.droidworker.example.ConditionType;
 import com.droidworker.example.DividerItemDecoration;
 import com.droidworker.example.R;
+import com.droidworker.pulltoloadview.LoadToken;
 import com.droidworker.pulltoloadview.PullToLoadBaseView;
 import com.droidworker.pulltoloadview.constant.LoadMode;
 import com.droidworker.pulltoloadview.impl.recyclerview.PTLVerticalRecyclerView;
@@ -26,28 +25,35 @@ public class RecyclerViewActivity extends BaseActivity {
 
     @Override
     public void onLoadNew() {
+        final LoadToken token = mPullToLoadVerticalRecyclerView.getLoadToken();
         mPullToLoadVerticalRecyclerView.postDelayed(new Runnable() {
             @Override
             public void run() {
-                mPullToLoadVerticalRecyclerView.onLoadComplete();
-                mAdapter.restoreCount();
-                mPullToLoadVerticalRecyclerView.getAdapter().notifyDataSetChanged();
+                mPullToLoadVerticalRecyclerView.commitLoad(token, new Runnable() {
+                    @Override
+                    public void run() {
+                        mAdapter.restoreCount();
+                    }
+                }, true);
             }
         }, 2000);
     }
 
     @Override
     public void onLoadMore() {
+        final LoadToken token = mPullToLoadVerticalRecyclerView.getLoadToken();
         mPullToLoadVerticalRecyclerView.postDelayed(new Runnable() {
             @Override
             public void run() {
-                mPullToLoadVerticalRecyclerView.onLoadComplete();
-                if (mAdapter.getItemCount() >= 30) {
-                    mPullToLoadVerticalRecyclerView.setAllLoaded(true);
-                } else {
-                    mAdapter.updateCount();
-                    mPullToLoadVerticalRecyclerView.getAdapter().notifyDataSetChanged();
-                }
+                final boolean hasMore = mAdapter.getItemCount() < 30;
+                mPullToLoadVerticalRecyclerView.commitLoad(token, new Runnable() {
+                    @Override
+                    public void run() {
+                        if (hasMore) {
+                            mAdapter.updateCount();
+                        }
+                    }
+                }, hasMore);
             }
         }, 2000);
     }
@@ -77,8 +83,8 @@ public class RecyclerViewActivity extends BaseActivity {
             mPullToLoadVerticalRecyclerView.addItemDecoration(new DividerItemDecoration(
                     DividerItemDecoration.VERTICAL_LIST, Color.TRANSPARENT,
                     getResources().getDimensionPixelSize(R.dimen.item_divider)));
-            addEmptyView(LayoutInflater.from(this).inflate(R.layout.layout_empty, null, false));
-            addErrorView(LayoutInflater.from(this).inflate(R.layout.layout_error, null, false));
+            addEmptyView(R.layout.layout_empty);
+            addErrorView(R.layout.layout_error);
 
             mPullToLoadVerticalRecyclerView.setOnScrollListener(new RecyclerView.OnScrollListener() {
                 @Override
@@ -120,7 +126,7 @@ public class RecyclerViewActivity extends BaseActivity {
     }
 
     @Override
-    protected void addEmptyView(View view) {
-        mPullToLoadVerticalRecyclerView.setEmptyView(view);
+    protected void addEmptyView(int layoutId) {
+        mPullToLoadVerticalRecyclerView.setEmptyView(layoutId);
     }
 }
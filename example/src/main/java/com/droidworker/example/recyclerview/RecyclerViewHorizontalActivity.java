@@ -8,6 +8,7 @@ import android.support.v7.widget.Toolbar;
 import com.droidworker.example.BaseActivity;
 import com.droidworker.example.DividerItemDecoration;
 import com.droidworker.example.R;
+import com.droidworker.pulltoloadview.LoadToken;
 import com.droidworker.pulltoloadview.PullToLoadBaseView;
 import com.droidworker.pulltoloadview.constant.LoadMode;
 import com.droidworker.pulltoloadview.impl.recyclerview.PTLHorizontalRecyclerView;
@@ -21,28 +22,35 @@ public class RecyclerViewHorizontalActivity extends BaseActivity {
 
     @Override
     public void onLoadNew() {
+        final LoadToken token = mPullToLoadHorizontalRecyclerView.getLoadToken();
         mPullToLoadHorizontalRecyclerView.postDelayed(new Runnable() {
             @Override
             public void run() {
-                mPullToLoadHorizontalRecyclerView.onLoadComplete();
-                mAdapter.restoreCount();
-                mPullToLoadHorizontalRecyclerView.getAdapter().notifyDataSetChanged();
+                mPullToLoadHorizontalRecyclerView.commitLoad(token, new Runnable() {
+                    @Override
+                    public void run() {
+                        mAdapter.restoreCount();
+                    }
+                }, true);
             }
         }, 2000);
     }
 
     @Override
     public void onLoadMore() {
+        final LoadToken token = mPullToLoadHorizontalRecyclerView.getLoadToken();
         mPullToLoadHorizontalRecyclerView.postDelayed(new Runnable() {
             @Override
             public void run() {
-                mPullToLoadHorizontalRecyclerView.onLoadComplete();
-                if (mAdapter.getItemCount() >= 30) {
-                    mPullToLoadHorizontalRecyclerView.setAllLoaded(true);
-                } else {
-                    mAdapter.updateCount();
-                    mPullToLoadHorizontalRecyclerView.getAdapter().notifyDataSetChanged();
-                }
+                final boolean hasMore = mAdapter.getItemCount() < 30;
+                mPullToLoadHorizontalRecyclerView.commitLoad(token, new Runnable() {
+                    @Override
+                    public void run() {
+                        if (hasMore) {
+                            mAdapter.updateCount();
+                        }
+                    }
+                }, hasMore);
             }
         }, 2000);
     }
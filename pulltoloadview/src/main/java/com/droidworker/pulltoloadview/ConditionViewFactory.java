@@ -0,0 +1,20 @@
+package com.droidworker.pulltoloadview;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * 延迟创建特殊情况的视图,例如空数据,错误页面.只在第一次展示或者空闲时预创建,
+ * 隐藏后内存不足时会被释放,再次展示时重新创建
+ * @author https://github.com/DroidWorkerLYF
+ */
+public interface ConditionViewFactory {
+    /**
+     * 创建视图,在主线程调用
+     * @param context context
+     * @param parent 视图将被添加到的父容器,只用于生成布局参数,不要直接添加
+     * @return 特殊视图
+     */
+    View createConditionView(Context context, ViewGroup parent);
+}
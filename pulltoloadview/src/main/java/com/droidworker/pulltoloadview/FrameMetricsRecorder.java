@@ -0,0 +1,206 @@
+package com.droidworker.pulltoloadview;
+
+import com.droidworker.pulltoloadview.constant.FramePhase;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+import java.util.Arrays;
+
+/**
+ * 通过Choreographer的帧回调记录每一帧的间隔,按阶段统计到以毫秒为单位的直方图中.
+ * 只在有阶段进行中时注册回调,没有阶段时不产生任何开销.Choreographer需要API 16,更低的版本不记录
+ * @author https://github.com/DroidWorkerLYF
+ */
+class FrameMetricsRecorder {
+    /**
+     * 直方图的桶数,每个桶1毫秒,最后一个桶记录所有更长的帧
+     */
+    private static final int BUCKET_COUNT = 128;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final FramePhase[] PHASES = FramePhase.values();
+    private final int[][] mHistograms = new int[PHASES.length][BUCKET_COUNT];
+    private final int[] mFrameCounts = new int[PHASES.length];
+    private final int[] mJankCounts = new int[PHASES.length];
+    private final int[] mDroppedFrameCounts = new int[PHASES.length];
+    /**
+     * 每个阶段剩余需要记录的帧数,0表示直到退出阶段
+     */
+    private final int[] mRemainingFrames = new int[PHASES.length];
+    /**
+     * 进行中的阶段,按ordinal的位
+     */
+    private int mActivePhases;
+    /**
+     * 一个刷新周期的时长
+     */
+    private final long mFrameIntervalNanos;
+    private long mLastFrameTimeNanos;
+    private boolean mIsCallbackPosted;
+    private Object mFrameCallback;
+
+    FrameMetricsRecorder(Context context) {
+        float refreshRate = 60f;
+        final WindowManager windowManager = (WindowManager) context
+                .getSystemService(Context.WINDOW_SERVICE);
+        if (windowManager != null && windowManager.getDefaultDisplay() != null) {
+            refreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+        }
+        if (refreshRate < 10f) {
+            refreshRate = 60f;
+        }
+        mFrameIntervalNanos = (long) (1000000000L / refreshRate);
+    }
+
+    /**
+     * @param frameIntervalNanos 一个刷新周期的时长
+     */
+    FrameMetricsRecorder(long frameIntervalNanos) {
+        mFrameIntervalNanos = frameIntervalNanos;
+    }
+
+    /**
+     * 进入或者退出阶段
+     * @param phase 阶段
+     * @param isActive true则进入
+     */
+    void setPhaseActive(FramePhase phase, boolean isActive) {
+        final int bit = 1 << phase.ordinal();
+        if (isActive == ((mActivePhases & bit) != 0)) {
+            return;
+        }
+        if (isActive) {
+            mActivePhases |= bit;
+            mRemainingFrames[phase.ordinal()] = 0;
+            postFrameCallback();
+        } else {
+            mActivePhases &= ~bit;
+        }
+    }
+
+    /**
+     * 进入阶段,记录指定的帧数后自动退出
+     * @param phase 阶段
+     * @param frames 帧数
+     */
+    void enterPhaseForFrames(FramePhase phase, int frames) {
+        mActivePhases |= 1 << phase.ordinal();
+        mRemainingFrames[phase.ordinal()] = frames;
+        postFrameCallback();
+    }
+
+    /**
+     * 退出所有阶段,例如detach时,下一次进入阶段时重新开始计算间隔
+     */
+    void stop() {
+        mActivePhases = 0;
+        mLastFrameTimeNanos = 0;
+        if (mIsCallbackPosted && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Choreographer.getInstance().removeFrameCallback(
+                    (Choreographer.FrameCallback) mFrameCallback);
+        }
+        mIsCallbackPosted = false;
+    }
+
+    void reset() {
+        for (int i = 0; i < PHASES.length; i++) {
+            Arrays.fill(mHistograms[i], 0);
+            mFrameCounts[i] = 0;
+            mJankCounts[i] = 0;
+            mDroppedFrameCounts[i] = 0;
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (mIsCallbackPosted || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+        if (mFrameCallback == null) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    mIsCallbackPosted = false;
+                    onFrame(frameTimeNanos);
+                    if (mActivePhases != 0) {
+                        postFrameCallback();
+                    } else {
+                        mLastFrameTimeNanos = 0;
+                    }
+                }
+            };
+        }
+        mIsCallbackPosted = true;
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+    }
+
+    /**
+     * 记录和上一帧的间隔,进入阶段后的第一帧没有上一帧,只作为起点
+     * @param frameTimeNanos 这一帧开始的时间
+     */
+    void onFrame(long frameTimeNanos) {
+        final long lastFrameTimeNanos = mLastFrameTimeNanos;
+        mLastFrameTimeNanos = frameTimeNanos;
+        if (lastFrameTimeNanos == 0 || frameTimeNanos <= lastFrameTimeNanos) {
+            return;
+        }
+        final long durationNanos = frameTimeNanos - lastFrameTimeNanos;
+        final int bucket = (int) Math.min(durationNanos / NANOS_PER_MILLI, BUCKET_COUNT - 1);
+        // 允许半个周期的误差
+        final int dropped = (int) ((durationNanos + mFrameIntervalNanos / 2)
+                / mFrameIntervalNanos) - 1;
+        for (int i = 0; i < PHASES.length; i++) {
+            if ((mActivePhases & (1 << i)) == 0) {
+                continue;
+            }
+            mHistograms[i][bucket]++;
+            mFrameCounts[i]++;
+            if (dropped > 0) {
+                mJankCounts[i]++;
+                mDroppedFrameCounts[i] += dropped;
+            }
+            if (mRemainingFrames[i] > 0 && --mRemainingFrames[i] == 0) {
+                mActivePhases &= ~(1 << i);
+            }
+        }
+    }
+
+    /**
+     * @param phase 阶段
+     * @return 这个阶段到目前为止的统计
+     */
+    FrameStats getStats(FramePhase phase) {
+        final int index = phase.ordinal();
+        final int[] histogram = mHistograms[index];
+        final int frameCount = mFrameCounts[index];
+        int max = 0;
+        for (int i = BUCKET_COUNT - 1; i >= 0; i--) {
+            if (histogram[i] > 0) {
+                max = i;
+                break;
+            }
+        }
+        return new FrameStats(phase, frameCount, mJankCounts[index], mDroppedFrameCounts[index],
+                percentile(histogram, frameCount, 50), percentile(histogram, frameCount, 90),
+                percentile(histogram, frameCount, 99), max);
+    }
+
+    private static int percentile(int[] histogram, int frameCount, int percent) {
+        if (frameCount == 0) {
+            return 0;
+        }
+        // 第一个累计数量达到percent%的桶
+        final long target = ((long) frameCount * percent + 99) / 100;
+        int count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += histogram[i];
+            if (count >= target) {
+                return i;
+            }
+        }
+        return BUCKET_COUNT - 1;
+    }
+}
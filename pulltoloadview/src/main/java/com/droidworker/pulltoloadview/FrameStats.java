@@ -0,0 +1,78 @@
+package com.droidworker.pulltoloadview;
+
+import com.droidworker.pulltoloadview.constant.FramePhase;
+
+/**
+ * 一个阶段的帧耗时统计的不可变快照,耗时的单位都是毫秒
+ * @author https://github.com/DroidWorkerLYF
+ */
+public final class FrameStats {
+    private final FramePhase mPhase;
+    private final int mFrameCount;
+    private final int mJankCount;
+    private final int mDroppedFrameCount;
+    private final int mP50;
+    private final int mP90;
+    private final int mP99;
+    private final int mMax;
+
+    FrameStats(FramePhase phase, int frameCount, int jankCount, int droppedFrameCount, int p50,
+            int p90, int p99, int max) {
+        mPhase = phase;
+        mFrameCount = frameCount;
+        mJankCount = jankCount;
+        mDroppedFrameCount = droppedFrameCount;
+        mP50 = p50;
+        mP90 = p90;
+        mP99 = p99;
+        mMax = max;
+    }
+
+    public FramePhase getPhase() {
+        return mPhase;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * @return 超过一个刷新周期的帧的数量
+     */
+    public int getJankCount() {
+        return mJankCount;
+    }
+
+    /**
+     * @return 累计丢掉的刷新周期的数量
+     */
+    public int getDroppedFrameCount() {
+        return mDroppedFrameCount;
+    }
+
+    public int getP50() {
+        return mP50;
+    }
+
+    public int getP90() {
+        return mP90;
+    }
+
+    public int getP99() {
+        return mP99;
+    }
+
+    /**
+     * @return 最长的一帧,超过统计范围的帧按统计范围的上限计算
+     */
+    public int getMax() {
+        return mMax;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameStats{phase=" + mPhase + ", frames=" + mFrameCount + ", jank=" + mJankCount
+                + ", dropped=" + mDroppedFrameCount + ", p50=" + mP50 + "ms, p90=" + mP90
+                + "ms, p99=" + mP99 + "ms, max=" + mMax + "ms}";
+    }
+}
@@ -44,6 +44,20 @@ public interface IPullToLoad<T extends View> {
      */
     void addConditionView(View conditionView, int conditionType);
 
+    /**
+     * 增加特殊情况的视图,在第一次展示时才inflate
+     * @param layoutId 特殊视图的layout id
+     * @param conditionType 情况类型(应该大于0)
+     */
+    void addConditionView(int layoutId, int conditionType);
+
+    /**
+     * 增加特殊情况的视图,在第一次展示时才创建
+     * @param factory 创建特殊视图
+     * @param conditionType 情况类型(应该大于0)
+     */
+    void addConditionView(ConditionViewFactory factory, int conditionType);
+
     /**
      * 展示指定情况下的视图
      * @param conditionType 指定情况
@@ -87,15 +101,54 @@ public interface IPullToLoad<T extends View> {
     boolean isUpdating();
 
     /**
-     * 设置为加载({@link State#MANUAL_UPDATE})
+     * 设置为加载({@link State#MANUAL_UPDATE}),布局完成后执行,未执行前的重复调用会被合并.
+     * 未执行前detach则被取消
      */
     void setLoading();
 
+    /**
+     * 取消还未执行的{@link #setLoading()}
+     */
+    void cancelLoading();
+
     /**
      * 设置加载完成
      */
     void onLoadComplete();
 
+    /**
+     * 获取当前加载的凭证,应该在{@link PullToLoadListener#onLoadNew()}或者
+     * {@link PullToLoadListener#onLoadMore()}中获取,并在提交结果时传入
+     * @return 凭证,没有开始过加载时为null
+     */
+    LoadToken getLoadToken();
+
+    /**
+     * 一次性提交加载结果:更新数据,更新footer,结束加载状态,只会触发一次布局.
+     * 代替分开调用{@link #onLoadComplete()},notifyDataSetChanged和{@link #setAllLoaded(boolean)}
+     * @param token {@link #getLoadToken()}获取的凭证,null则不校验
+     * @param dataApplier 将数据更新到Adapter,应该使用范围通知而不是notifyDataSetChanged
+     * @param hasMore 是否还有更多
+     * @return false则表示凭证已经过期或者已经提交过,结果被丢弃
+     */
+    boolean commitLoad(LoadToken token, Runnable dataApplier, boolean hasMore);
+
+    /**
+     * 可以在任意线程调用的{@link #onLoadComplete()}
+     */
+    void postLoadComplete();
+
+    /**
+     * 可以在任意线程调用的{@link #commitLoad(LoadToken, Runnable, boolean)},dataApplier会在主线程执行
+     */
+    void postCommitLoad(LoadToken token, Runnable dataApplier, boolean hasMore);
+
+    /**
+     * 获取加载状态的快照,可以在任意线程调用,不需要切换到主线程
+     * @return 最近一次发布的快照
+     */
+    LoadStateSnapshot getLoadStateSnapshot();
+
     /**
      * 是否全部加载完毕
      * @return true 则表示调用过onAllLoaded,已经都加载完了
@@ -114,6 +167,12 @@ public interface IPullToLoad<T extends View> {
      */
     void setOnPullToLoadListener(PullToLoadListener pullToLoadListener);
 
+    /**
+     * 设置预加载回调,拉动超过释放的阈值时即开始加载,传null则关闭预加载
+     * @param speculativeLoadListener 回调
+     */
+    void setSpeculativeLoadListener(SpeculativeLoadListener speculativeLoadListener);
+
     /**
      * 处理状态和滚动距离
      * @param state 状态
@@ -0,0 +1,78 @@
+package com.droidworker.pulltoloadview;
+
+import com.droidworker.pulltoloadview.constant.LoadMode;
+import com.droidworker.pulltoloadview.constant.State;
+
+/**
+ * 加载状态的不可变快照,每次状态变化时在主线程生成新的实例并发布,可以在任意线程无锁读取
+ * @author https://github.com/DroidWorkerLYF
+ */
+public final class LoadStateSnapshot {
+    static final LoadStateSnapshot INITIAL = new LoadStateSnapshot(State.RESET, null, 0, false,
+            false);
+
+    private final State mState;
+    private final LoadMode mCurLoadMode;
+    private final int mGeneration;
+    private final boolean mIsAllLoaded;
+    private final boolean mIsAutoLoadingMore;
+
+    LoadStateSnapshot(State state, LoadMode curLoadMode, int generation, boolean isAllLoaded,
+            boolean isAutoLoadingMore) {
+        mState = state;
+        mCurLoadMode = curLoadMode;
+        mGeneration = generation;
+        mIsAllLoaded = isAllLoaded;
+        mIsAutoLoadingMore = isAutoLoadingMore;
+    }
+
+    public State getState() {
+        return mState;
+    }
+
+    /**
+     * @return 当前的加载方向,{@link LoadMode#START}或者{@link LoadMode#END},没有在拉动或加载时为null
+     */
+    public LoadMode getCurLoadMode() {
+        return mCurLoadMode;
+    }
+
+    /**
+     * @return 加载序号,和{@link LoadToken#getGeneration()}对应
+     */
+    public int getGeneration() {
+        return mGeneration;
+    }
+
+    public boolean isAllLoaded() {
+        return mIsAllLoaded;
+    }
+
+    /**
+     * @return 是否正在自动加载更多,和加载更新相互独立
+     */
+    public boolean isAutoLoadingMore() {
+        return mIsAutoLoadingMore;
+    }
+
+    /**
+     * @return 是否正在加载更多,包括拉动触发的和自动加载
+     */
+    public boolean isLoading() {
+        return mState == State.LOADING || mIsAutoLoadingMore;
+    }
+
+    /**
+     * @return 是否正在加载更新
+     */
+    public boolean isUpdating() {
+        return mState == State.UPDATING || mState == State.MANUAL_UPDATE;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadStateSnapshot{state=" + mState + ", curLoadMode=" + mCurLoadMode
+                + ", generation=" + mGeneration + ", allLoaded=" + mIsAllLoaded
+                + ", autoLoadingMore=" + mIsAutoLoadingMore + "}";
+    }
+}
@@ -0,0 +1,105 @@
+package com.droidworker.pulltoloadview;
+
+import com.droidworker.pulltoloadview.constant.LoadMode;
+
+/**
+ * 一次加载请求的凭证,用于在加载结果返回时判断该请求是否仍然有效.
+ * 请求被取消后{@link #isCancelled()}返回true,此时应丢弃结果;也可以通过
+ * {@link #setOnCancelListener(OnCancelListener)}及时中断网络请求.
+ * @author https://github.com/DroidWorkerLYF
+ */
+public class LoadToken {
+    /**
+     * 对应的加载方向,{@link LoadMode#START}为加载更新,{@link LoadMode#END}为加载更多
+     */
+    private final LoadMode mLoadMode;
+    /**
+     * 生成此凭证时的加载序号
+     */
+    private final int mGeneration;
+    private volatile boolean mCancelled;
+    private volatile boolean mCommitted;
+    /**
+     * 结果是否已经通过commitLoad提交到列表中,每个凭证只能提交一次
+     */
+    private volatile boolean mApplied;
+    private OnCancelListener mOnCancelListener;
+
+    LoadToken(LoadMode loadMode, int generation) {
+        mLoadMode = loadMode;
+        mGeneration = generation;
+    }
+
+    public LoadMode getLoadMode() {
+        return mLoadMode;
+    }
+
+    public int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * @return true则表示请求已被取消,结果应该被丢弃
+     */
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * @return true则表示用户已经松手,结果会被使用
+     */
+    public boolean isCommitted() {
+        return mCommitted;
+    }
+
+    /**
+     * @return true则表示结果已经提交到列表中,再次提交会被丢弃
+     */
+    public boolean isApplied() {
+        return mApplied;
+    }
+
+    /**
+     * 设置取消回调,如果已经取消则立即回调
+     * @param onCancelListener 回调
+     */
+    public void setOnCancelListener(OnCancelListener onCancelListener) {
+        final boolean cancelled;
+        synchronized (this) {
+            mOnCancelListener = onCancelListener;
+            cancelled = mCancelled;
+        }
+        if (cancelled && onCancelListener != null) {
+            onCancelListener.onCancel(this);
+        }
+    }
+
+    void commit() {
+        mCommitted = true;
+    }
+
+    void markApplied() {
+        mApplied = true;
+    }
+
+    void cancel() {
+        final OnCancelListener listener;
+        synchronized (this) {
+            if (mCancelled) {
+                return;
+            }
+            mCancelled = true;
+            listener = mOnCancelListener;
+        }
+        if (listener != null) {
+            listener.onCancel(this);
+        }
+    }
+
+    /**
+     * 取消回调
+     */
+    public interface OnCancelListener {
+        void onCancel(LoadToken token);
+    }
+}
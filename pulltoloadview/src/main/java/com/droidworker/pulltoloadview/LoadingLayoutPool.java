@@ -0,0 +1,128 @@
+package com.droidworker.pulltoloadview;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.support.v4.util.LongSparseArray;
+import android.view.View;
+
+import com.droidworker.pulltoloadview.constant.Orientation;
+import com.droidworker.pulltoloadview.constant.State;
+
+import java.util.ArrayList;
+
+/**
+ * 在多个{@link PullToLoadBaseView}之间复用header,footer和自动加载更多的footer,避免频繁创建和销毁页面时
+ * 重复inflate.按用途,滚动方向和布局id区分,布局id为0表示默认的{@link com.droidworker.pulltoloadview.impl.LoadingLayout}.
+ * 被复用的视图持有创建时的Context,所以pool的生命周期不应该超过这个Context,通常由Activity实现
+ * {@link Provider}提供.所有方法都需要在主线程调用,没有同步
+ * @author https://github.com/DroidWorkerLYF
+ */
+public class LoadingLayoutPool {
+    /**
+     * 用途:header
+     */
+    public static final int ROLE_HEADER = 0;
+    /**
+     * 用途:footer
+     */
+    public static final int ROLE_FOOTER = 1;
+    /**
+     * 用途:自动加载更多的footer
+     */
+    public static final int ROLE_AUTO_LOAD_FOOTER = 2;
+    private static final int DEFAULT_MAX_SIZE = 4;
+    private final LongSparseArray<ArrayList<ILoadingLayout>> mPool = new LongSparseArray<>();
+    /**
+     * 每种布局最多保留的数量
+     */
+    private int mMaxSize = DEFAULT_MAX_SIZE;
+
+    /**
+     * 设置每种布局最多保留的数量
+     * @param maxSize 数量
+     */
+    public void setMaxSize(int maxSize) {
+        mMaxSize = Math.max(maxSize, 0);
+    }
+
+    /**
+     * 取出一个可以复用的视图
+     * @param role 用途,{@link #ROLE_HEADER},{@link #ROLE_FOOTER}或者{@link #ROLE_AUTO_LOAD_FOOTER}
+     * @param orientation 滚动方向
+     * @param layoutId 布局id,0表示默认的布局
+     * @return 视图,没有则返回null
+     */
+    public ILoadingLayout acquire(int role, Orientation orientation, int layoutId) {
+        final ArrayList<ILoadingLayout> list = mPool.get(getKey(role, orientation, layoutId));
+        if (list == null || list.isEmpty()) {
+            return null;
+        }
+        return list.remove(list.size() - 1);
+    }
+
+    /**
+     * 放回一个不再使用的视图,视图需要已经从父容器中移除
+     * @param role 用途,{@link #ROLE_HEADER},{@link #ROLE_FOOTER}或者{@link #ROLE_AUTO_LOAD_FOOTER}
+     * @param orientation 滚动方向
+     * @param layoutId 布局id,0表示默认的布局
+     * @param loadingLayout 视图
+     * @return true则放回成功
+     */
+    public boolean release(int role, Orientation orientation, int layoutId,
+            ILoadingLayout loadingLayout) {
+        final View view = loadingLayout.getLoadingView();
+        if (view.getParent() != null) {
+            return false;
+        }
+        final long key = getKey(role, orientation, layoutId);
+        ArrayList<ILoadingLayout> list = mPool.get(key);
+        if (list == null) {
+            list = new ArrayList<>(mMaxSize);
+            mPool.put(key, list);
+        }
+        if (list.size() >= mMaxSize || list.contains(loadingLayout)) {
+            return false;
+        }
+        loadingLayout.onPull(State.RESET, 0);
+        view.setTranslationX(0);
+        view.setTranslationY(0);
+        list.add(loadingLayout);
+        return true;
+    }
+
+    /**
+     * 清空所有保留的视图,例如内存不足时
+     */
+    public void clear() {
+        mPool.clear();
+    }
+
+    private static long getKey(int role, Orientation orientation, int layoutId) {
+        return ((long) layoutId << 3) | (role << 1) | (orientation == Orientation.HORIZONTAL ? 1 : 0);
+    }
+
+    /**
+     * 查找Context提供的pool
+     * @param context 视图的Context
+     * @return pool,没有则返回null
+     */
+    public static LoadingLayoutPool from(Context context) {
+        while (context != null) {
+            if (context instanceof Provider) {
+                return ((Provider) context).getLoadingLayoutPool();
+            }
+            if (!(context instanceof ContextWrapper)) {
+                break;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+    /**
+     * 由Activity等Context实现,为其中的{@link PullToLoadBaseView}提供共享的pool
+     */
+    public interface Provider {
+        LoadingLayoutPool getLoadingLayoutPool();
+    }
+}
@@ -0,0 +1,301 @@
+package com.droidworker.pulltoloadview;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Iterator;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 加载更多的流水线,同时保持最多{@link #getMaxInFlight()}个分页请求.
+ * 请求按页码从小到大发出,即离可见区域最近的页优先;结果乱序返回时会先缓存,始终按页码顺序交给
+ * {@link PageConsumer},每交付一页就补发新的请求.加载更新时所有预加载会被取消,并从第一页重新开始.
+ * 除{@link PageRequest#deliver(Object)}和{@link PageRequest#fail()}以外的方法都需要在主线程调用.
+ * @param <P> 分页数据
+ * @author https://github.com/DroidWorkerLYF
+ */
+public class PagePipeline<P> {
+    private static final int DEFAULT_MAX_IN_FLIGHT = 2;
+    /**
+     * 把请求的结果切换到主线程
+     */
+    private final Executor mMainExecutor;
+    private final PageFetcher<P> mPageFetcher;
+    private final PageConsumer<P> mPageConsumer;
+    /**
+     * 第一个由流水线加载的页码,加载更新后从这里重新开始
+     */
+    private final int mFirstPage;
+    /**
+     * 最多同时进行的请求数
+     */
+    private int mMaxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    /**
+     * 进行中的请求,key为页码,按页码排序以便取消某一页之后的请求
+     */
+    private final TreeMap<Integer, PageRequest<P>> mInFlight = new TreeMap<>();
+    /**
+     * 已经返回但是还不能按顺序交付的页
+     */
+    private final TreeMap<Integer, P> mCompleted = new TreeMap<>();
+    /**
+     * 下一个要请求的页码
+     */
+    private int mNextPage;
+    /**
+     * 下一个要交付的页码
+     */
+    private int mNextToApply;
+    /**
+     * 是否已经没有更多的页
+     */
+    private boolean mIsEndReached;
+    /**
+     * 没有更多的页时回调,由{@link PullToLoadBaseView}设置来标记全部加载完毕
+     */
+    private Runnable mOnEndReachedCallback;
+
+    /**
+     * @param firstPage 第一个由流水线加载的页码
+     * @param pageFetcher 发出请求
+     * @param pageConsumer 按顺序接收结果
+     */
+    public PagePipeline(int firstPage, PageFetcher<P> pageFetcher, PageConsumer<P> pageConsumer) {
+        this(firstPage, pageFetcher, pageConsumer, new Executor() {
+            private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+            @Override
+            public void execute(Runnable command) {
+                mMainHandler.post(command);
+            }
+        });
+    }
+
+    /**
+     * @param mainExecutor 在主线程执行请求结果的处理
+     */
+    PagePipeline(int firstPage, PageFetcher<P> pageFetcher, PageConsumer<P> pageConsumer,
+            Executor mainExecutor) {
+        mMainExecutor = mainExecutor;
+        mFirstPage = firstPage;
+        mNextPage = mNextToApply = firstPage;
+        mPageFetcher = pageFetcher;
+        mPageConsumer = pageConsumer;
+    }
+
+    /**
+     * 设置最多同时进行的请求数
+     * @param maxInFlight 请求数,最小为1
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        mMaxInFlight = Math.max(maxInFlight, 1);
+    }
+
+    public int getMaxInFlight() {
+        return mMaxInFlight;
+    }
+
+    /**
+     * 用户需要看到下一页时调用.如果下一页没有在请求中,会取消之后的预加载来让出位置,然后补满请求
+     * @return false则表示已经没有更多的页,也没有等待交付的页,这次加载不会有结果,调用方需要直接结束加载
+     */
+    public boolean requestMore() {
+        if (mIsEndReached) {
+            return !mInFlight.isEmpty() || !mCompleted.isEmpty();
+        }
+        if (mInFlight.get(mNextToApply) == null && mCompleted.get(mNextToApply) == null
+                && mNextPage > mNextToApply) {
+            // 下一页失败过或者被抢占,从它开始重新请求
+            cancelFrom(mNextToApply);
+        }
+        fill();
+        return true;
+    }
+
+    /**
+     * 取消所有请求和缓存的结果,例如加载更新开始时
+     */
+    public void cancelAll() {
+        cancelFrom(mNextToApply);
+    }
+
+    /**
+     * 取消所有请求,并从第一页重新开始,加载更新开始时由{@link PullToLoadBaseView}调用
+     */
+    public void restart() {
+        reset(mFirstPage);
+    }
+
+    /**
+     * 加载更新完成后,从指定页开始重新加载更多
+     * @param nextPage 下一个要加载的页码
+     */
+    public void reset(int nextPage) {
+        cancelAll();
+        mNextPage = mNextToApply = nextPage;
+        mIsEndReached = false;
+    }
+
+    /**
+     * 没有更多的页了,取消之后的请求
+     * @param lastPage 最后一页的页码
+     */
+    public void setEndReached(int lastPage) {
+        mIsEndReached = true;
+        cancelFrom(lastPage + 1);
+        if (mOnEndReachedCallback != null) {
+            mOnEndReachedCallback.run();
+        }
+    }
+
+    void setOnEndReachedCallback(Runnable onEndReachedCallback) {
+        mOnEndReachedCallback = onEndReachedCallback;
+    }
+
+    /**
+     * @return 进行中的请求数
+     */
+    public int getInFlightCount() {
+        return mInFlight.size();
+    }
+
+    /**
+     * 补满请求,页码小的先发出
+     */
+    private void fill() {
+        while (!mIsEndReached && mInFlight.size() < mMaxInFlight) {
+            final PageRequest<P> request = new PageRequest<>(this, mNextPage++);
+            mInFlight.put(request.mPage, request);
+            mPageFetcher.fetch(request);
+        }
+    }
+
+    /**
+     * 取消指定页及之后的请求和结果
+     * @param page 页码
+     */
+    private void cancelFrom(int page) {
+        final Iterator<PageRequest<P>> iterator = mInFlight.tailMap(page).values().iterator();
+        while (iterator.hasNext()) {
+            iterator.next().cancel();
+            iterator.remove();
+        }
+        mCompleted.tailMap(page).clear();
+        if (mNextPage > page) {
+            mNextPage = Math.max(page, mNextToApply);
+        }
+    }
+
+    private void onDelivered(PageRequest<P> request, P data) {
+        if (!isCurrent(request)) {
+            return;
+        }
+        mInFlight.remove(request.mPage);
+        mCompleted.put(request.mPage, data);
+        // 按页码顺序交付
+        P next;
+        while ((next = mCompleted.remove(mNextToApply)) != null) {
+            mPageConsumer.onPageReady(mNextToApply++, next);
+        }
+        // 交付后让出的位置继续请求之后的页,始终保持最多mMaxInFlight个请求
+        fill();
+    }
+
+    private void onFailed(PageRequest<P> request) {
+        if (!isCurrent(request)) {
+            return;
+        }
+        mInFlight.remove(request.mPage);
+        // 之后的页不能先于失败的页交付,全部取消,下次requestMore时从失败的页重新请求
+        cancelFrom(request.mPage);
+        mPageConsumer.onPageFailed(request.mPage);
+    }
+
+    private boolean isCurrent(PageRequest<P> request) {
+        return !request.isCancelled() && mInFlight.get(request.mPage) == request;
+    }
+
+    /**
+     * 一个分页请求
+     */
+    public static class PageRequest<P> {
+        private final PagePipeline<P> mPipeline;
+        private final int mPage;
+        private volatile boolean mCancelled;
+
+        PageRequest(PagePipeline<P> pipeline, int page) {
+            mPipeline = pipeline;
+            mPage = page;
+        }
+
+        public int getPage() {
+            return mPage;
+        }
+
+        /**
+         * @return true则表示请求被取消了,可以中断请求
+         */
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        void cancel() {
+            mCancelled = true;
+        }
+
+        /**
+         * 请求成功,可以在任意线程调用
+         * @param data 分页数据
+         */
+        public void deliver(final P data) {
+            mPipeline.mMainExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mPipeline.onDelivered(PageRequest.this, data);
+                }
+            });
+        }
+
+        /**
+         * 请求失败,可以在任意线程调用
+         */
+        public void fail() {
+            mPipeline.mMainExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mPipeline.onFailed(PageRequest.this);
+                }
+            });
+        }
+    }
+
+    /**
+     * 发出分页请求
+     */
+    public interface PageFetcher<P> {
+        /**
+         * 开始请求,完成后调用{@link PageRequest#deliver(Object)}或者{@link PageRequest#fail()}
+         * @param request 请求
+         */
+        void fetch(PageRequest<P> request);
+    }
+
+    /**
+     * 按页码顺序接收结果,在主线程回调
+     */
+    public interface PageConsumer<P> {
+        /**
+         * 分页数据按顺序到达
+         * @param page 页码
+         * @param data 分页数据
+         */
+        void onPageReady(int page, P data);
+
+        /**
+         * 下一页请求失败,之后的预加载已被取消
+         * @param page 页码
+         */
+        void onPageFailed(int page);
+    }
+}
@@ -0,0 +1,283 @@
+package com.droidworker.pulltoloadview;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.View;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 将最近一次加载成功的分页数据保存为紧凑的二进制文件,冷启动时先展示缓存的内容,再加载更新.
+ * 每个PullToLoad视图对应一个key,数据的序列化由使用方负责,这里只保存每一页的字节数组.
+ * 文件格式: magic | version | 保存时间 | 页数 | (长度 | 内容)*
+ * @author https://github.com/DroidWorkerLYF
+ */
+public class PageSnapshotStore {
+    private static final String TAG = "PageSnapshotStore";
+    private static final String DIR_NAME = "ptl_snapshot";
+    private static final int MAGIC = 0x50544c53;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    /**
+     * 超过此大小的文件使用内存映射读取
+     */
+    private static final int MAP_THRESHOLD = 64 * 1024;
+    /**
+     * 所有的读写都在同一个线程中顺序执行
+     */
+    private static ExecutorService sExecutor;
+    private static Handler sMainHandler;
+
+    private final File mFile;
+
+    /**
+     * @param context context
+     * @param key 视图对应的key,只能包含文件名允许的字符
+     */
+    public PageSnapshotStore(Context context, String key) {
+        if (key == null || key.length() == 0) {
+            throw new IllegalArgumentException("key should not be empty");
+        }
+        mFile = new File(new File(context.getCacheDir(), DIR_NAME), key + ".bin");
+    }
+
+    /**
+     * @param file 缓存文件
+     */
+    PageSnapshotStore(File file) {
+        mFile = file;
+    }
+
+    /**
+     * 使用视图所在页面和视图id作为key
+     * @param pullToLoadView 视图,需要设置id
+     * @return store
+     */
+    public static PageSnapshotStore forView(PullToLoadBaseView pullToLoadView) {
+        if (pullToLoadView.getId() == View.NO_ID) {
+            throw new IllegalArgumentException("PullToLoad view should have an id");
+        }
+        final Context context = pullToLoadView.getContext();
+        return new PageSnapshotStore(context,
+                context.getClass().getName() + "_" + pullToLoadView.getId());
+    }
+
+    /**
+     * 同步读取,不要在主线程调用
+     * @return 缓存的分页数据,没有缓存或者文件损坏返回null
+     */
+    public Snapshot read() {
+        if (!mFile.exists()) {
+            return null;
+        }
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(mFile, "r");
+            final FileChannel channel = file.getChannel();
+            final long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("bad snapshot size " + size);
+            }
+            final ByteBuffer buffer;
+            if (size > MAP_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("unexpected end of snapshot");
+                    }
+                }
+                buffer.flip();
+            }
+            return decode(buffer);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            Log.w(TAG, "read snapshot failed", e);
+            clear();
+            return null;
+        } finally {
+            closeQuietly(file);
+        }
+    }
+
+    private Snapshot decode(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("unknown snapshot format");
+        }
+        final long savedAt = buffer.getLong();
+        final int pageCount = buffer.getInt();
+        if (pageCount < 0) {
+            throw new IOException("bad page count " + pageCount);
+        }
+        final List<byte[]> pages = new ArrayList<>(pageCount);
+        for (int i = 0; i < pageCount; i++) {
+            final int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException("bad page length " + length);
+            }
+            final byte[] page = new byte[length];
+            buffer.get(page);
+            pages.add(page);
+        }
+        return new Snapshot(Collections.unmodifiableList(pages), savedAt);
+    }
+
+    /**
+     * 同步写入,先写临时文件再替换,不要在主线程调用
+     * @param pages 分页数据
+     * @return true则写入成功
+     */
+    public boolean write(List<byte[]> pages) {
+        final File dir = mFile.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            return false;
+        }
+        final File tmp = new File(dir, mFile.getName() + ".tmp");
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(tmp, "rw");
+            file.setLength(0);
+            final FileChannel channel = file.getChannel();
+            final ByteBuffer[] buffers = new ByteBuffer[pages.size() * 2 + 1];
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + pages.size() * 4);
+            header.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis())
+                    .putInt(pages.size());
+            // 每页的长度放在header的尾部,通过gather write和内容交替写入
+            buffers[0] = header;
+            for (int i = 0; i < pages.size(); i++) {
+                final byte[] page = pages.get(i);
+                header.putInt(page.length);
+                final ByteBuffer length = header.duplicate();
+                length.position(header.position() - 4);
+                length.limit(header.position());
+                buffers[i * 2 + 1] = length;
+                buffers[i * 2 + 2] = ByteBuffer.wrap(page);
+            }
+            header.limit(HEADER_SIZE);
+            header.position(0);
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            Log.w(TAG, "write snapshot failed", e);
+            closeQuietly(file);
+            tmp.delete();
+            return false;
+        } finally {
+            closeQuietly(file);
+        }
+        return tmp.renameTo(mFile);
+    }
+
+    /**
+     * 在后台线程读取,在主线程回调
+     * @param callback 回调,没有缓存时snapshot为null
+     */
+    public void readAsync(final Callback callback) {
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final Snapshot snapshot = read();
+                getMainHandler().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onSnapshotRead(snapshot);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 在后台线程写入
+     * @param pages 分页数据,调用后不应该再修改
+     */
+    public void writeAsync(List<byte[]> pages) {
+        final List<byte[]> copy = new ArrayList<>(pages);
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                write(copy);
+            }
+        });
+    }
+
+    /**
+     * 删除缓存
+     */
+    public void clear() {
+        mFile.delete();
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor();
+        }
+        return sExecutor;
+    }
+
+    private static synchronized Handler getMainHandler() {
+        if (sMainHandler == null) {
+            sMainHandler = new Handler(Looper.getMainLooper());
+        }
+        return sMainHandler;
+    }
+
+    private static void closeQuietly(RandomAccessFile file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * 缓存的分页数据
+     */
+    public static class Snapshot {
+        private final List<byte[]> mPages;
+        private final long mSavedAt;
+
+        Snapshot(List<byte[]> pages, long savedAt) {
+            mPages = pages;
+            mSavedAt = savedAt;
+        }
+
+        public List<byte[]> getPages() {
+            return mPages;
+        }
+
+        /**
+         * @return 保存时的时间戳({@link System#currentTimeMillis()})
+         */
+        public long getSavedAt() {
+            return mSavedAt;
+        }
+    }
+
+    /**
+     * 异步读取的回调
+     */
+    public interface Callback {
+        void onSnapshotRead(Snapshot snapshot);
+    }
+}
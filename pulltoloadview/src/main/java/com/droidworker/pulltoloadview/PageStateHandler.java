@@ -0,0 +1,21 @@
+package com.droidworker.pulltoloadview;
+
+import android.os.Parcelable;
+
+/**
+ * 配置变化或者进程重建时,用于保存和恢复已加载的分页数据,恢复后无需重新从第一页加载
+ * @author https://github.com/DroidWorkerLYF
+ */
+public interface PageStateHandler {
+    /**
+     * 保存已加载的分页数据
+     * @return 分页数据,null则不保存
+     */
+    Parcelable onSavePageState();
+
+    /**
+     * 恢复分页数据,在恢复滚动位置之前回调,此时应该将数据设置到adapter中
+     * @param pageState {@link #onSavePageState()}保存的数据
+     */
+    void onRestorePageState(Parcelable pageState);
+}
@@ -3,9 +3,19 @@ package com.droidworker.pulltoloadview;
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Color;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.support.v4.view.NestedScrollingParent;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
@@ -19,13 +29,18 @@ import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.widget.FrameLayout;
 
+import com.droidworker.pulltoloadview.constant.ConcurrentLoadPolicy;
 import com.droidworker.pulltoloadview.constant.Direction;
+import com.droidworker.pulltoloadview.constant.DispatchPolicy;
+import com.droidworker.pulltoloadview.constant.FramePhase;
 import com.droidworker.pulltoloadview.constant.LoadMode;
 import com.droidworker.pulltoloadview.constant.Orientation;
 import com.droidworker.pulltoloadview.constant.State;
 import com.droidworker.pulltoloadview.impl.EdgeEffectView;
 import com.droidworker.pulltoloadview.impl.LoadingLayout;
 
+import java.util.WeakHashMap;
+
 /**
  * BaseView,提供对于手势的处理,可以实现下拉加载更新,上拉加载更多,回弹,支持为指定Condition添加对应的视图,比如
  * 空白页,网络错误页.
@@ -39,12 +54,29 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
         implements IPullToLoad<T>, NestedScrollingParent {
     private static final String TAG = "PullToLoadBaseView";
     private static final boolean DEBUG = true;
-    private static final int DEFAULT_ANIM_DURATION = 300;
+    private static final int DEFAULT_ANIM_DURATION = PullToLoadConfig.DEFAULT_ANIM_DURATION;
+    /**
+     * 拉回到阈值以下后,预加载结果默认的保留时间
+     */
+    private static final int DEFAULT_SPECULATIVE_TTL = 1500;
+    /**
+     * 被限制的加载更新显示完成状态之前的停留时间
+     */
+    private static final int THROTTLED_REFRESH_DELAY = 400;
+    /**
+     * detach之后放回header和footer之前等待的时间
+     */
+    private static final int RELEASE_LOADING_LAYOUT_DELAY = 1000;
     private static final float FRICTION = 2.0f;
     /**
      * 用于获取系统的actionbar size
      */
     private static final int[] THEME_ATTRS = { android.R.attr.actionBarSize };
+    /**
+     * 每个主题的actionbar size,同一个页面中的多个实例只查询一次主题.只在主线程访问
+     */
+    private static final WeakHashMap<Resources.Theme, Integer> sActionBarSizeCache
+            = new WeakHashMap<>();
     /**
      * Header view
      */
@@ -73,6 +105,36 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
      * 当前展示的Condition
      */
     protected View mCurConditionView;
+    /**
+     * Condition和延迟创建视图的factory的映射
+     */
+    private SparseArray<ConditionViewFactory> mConditionViewFactories = new SparseArray<>(2);
+    /**
+     * 空闲时预创建特殊视图,null表示没有在预创建
+     */
+    private MessageQueue.IdleHandler mPreInflateIdleHandler;
+    /**
+     * 进程进入后台列表或者内存不足时释放没有展示的延迟创建的特殊视图.只是界面不可见时不释放,
+     * 否则每次切到后台都会丢掉预创建的视图
+     */
+    private final ComponentCallbacks2 mTrimMemoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_BACKGROUND) {
+                trimConditionViews();
+            }
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+
+        }
+
+        @Override
+        public void onLowMemory() {
+            trimConditionViews();
+        }
+    };
     /**
      * 是否在Z轴上位于Toolbar或者自定义的导航栏下方.
      */
@@ -89,6 +151,14 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
      * 自定义footer的layout id
      */
     private int mFooterLayoutId;
+    /**
+     * 创建header,优先于{@link #mHeaderLayoutId}
+     */
+    private PullToLoadConfig.LoadingLayoutFactory mHeaderFactory;
+    /**
+     * 创建footer,优先于{@link #mFooterLayoutId}
+     */
+    private PullToLoadConfig.LoadingLayoutFactory mFooterFactory;
     /**
      * State为reset时,滑动到top动画时间
      */
@@ -109,6 +179,10 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
      * 当前出于的状态
      */
     private State mState = State.RESET;
+    /**
+     * 帧耗时的统计,开启后才创建
+     */
+    private FrameMetricsRecorder mFrameMetricsRecorder;
     /**
      * 垂直方向ActionBar高度,默认取系统的android.R.attr.actionBarSize
      * 水平方向,用户自定义的bar高度
@@ -206,6 +280,190 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
     private boolean mLoadNewInAll = true;
 
     private EdgeEffectView mEdgeEffectView;
+    /**
+     * 预加载回调,不为null时开启预加载
+     */
+    private SpeculativeLoadListener mSpeculativeLoadListener;
+    /**
+     * 当前的预加载凭证
+     */
+    private LoadToken mSpeculativeToken;
+    /**
+     * 拉回到阈值以下后,预加载结果的保留时间
+     */
+    private int mSpeculativeTtl = DEFAULT_SPECULATIVE_TTL;
+    /**
+     * 加载序号,每次生成{@link LoadToken}时递增
+     */
+    private int mLoadGeneration;
+    /**
+     * 当前加载的凭证,提交结果时用来判断结果是否过期
+     */
+    private LoadToken mLoadToken;
+    /**
+     * 加载回调的时机
+     */
+    private DispatchPolicy mDispatchPolicy = DispatchPolicy.IMMEDIATE;
+    /**
+     * 等待回调的加载更新或者拉动触发的加载更多,null表示没有等待中的回调
+     */
+    private LoadToken mPendingDispatch;
+    /**
+     * 等待回调的自动加载更多
+     */
+    private LoadToken mPendingAutoLoadDispatch;
+    /**
+     * 正在回调的加载凭证,在回调中通过{@link #getLoadToken()}获取
+     */
+    private LoadToken mDispatchingToken;
+    /**
+     * 已经确认使用但还没有回调{@link SpeculativeLoadListener#onPrefetchCommit(LoadToken)}的预加载
+     */
+    private LoadToken mPendingSpeculativeCommit;
+    /**
+     * 自动加载更多的状态,{@link State#RESET}或者{@link State#LOADING},和{@link #mState}相互独立,
+     * 自动加载更多和加载更新可以同时进行
+     */
+    private State mAutoLoadState = State.RESET;
+    /**
+     * 自动加载更多的凭证
+     */
+    private LoadToken mAutoLoadToken;
+    /**
+     * 加载更新和自动加载更多是否可以同时进行
+     */
+    private ConcurrentLoadPolicy mConcurrentLoadPolicy = ConcurrentLoadPolicy.SEQUENTIAL;
+    /**
+     * 是否在回弹动画的第一帧之后回调
+     */
+    private boolean mDispatchOnAnimationFrame;
+    private final Runnable mDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatchLoad();
+        }
+    };
+    /**
+     * 加载状态的快照,主线程写入,任意线程读取
+     */
+    private volatile LoadStateSnapshot mLoadStateSnapshot = LoadStateSnapshot.INITIAL;
+    /**
+     * 用于将其他线程的加载结果切换到主线程
+     */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    /**
+     * 超过保留时间后取消预加载
+     */
+    private final Runnable mCancelSpeculativeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            cancelSpeculativeLoad();
+        }
+    };
+    /**
+     * 已加载的页数
+     */
+    private int mPageCursor;
+    /**
+     * 保存和恢复分页数据
+     */
+    private PageStateHandler mPageStateHandler;
+    /**
+     * 是否从保存的状态中恢复过
+     */
+    private boolean mIsStateRestored;
+    /**
+     * 加载更多的流水线,不为null时由它代替{@link PullToLoadListener#onLoadMore()}
+     */
+    private PagePipeline<?> mPagePipeline;
+    private final Runnable mPipelineEndReachedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            setAllLoaded(true);
+        }
+    };
+    /**
+     * 是否有等待执行的手动加载,重复调用{@link #setLoading()}会被合并
+     */
+    private boolean mManualUpdatePending;
+    /**
+     * header有了大小之后执行手动加载
+     */
+    private final Runnable mManualUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mManualUpdatePending = false;
+            if (!isUpdating() && !isPullLoading()) {
+                setState(State.MANUAL_UPDATE);
+            }
+        }
+    };
+
+    /**
+     * 宿主设置的是否对用户可见,例如ViewPager中不在当前页的Fragment
+     */
+    private boolean mUserVisibleHint = true;
+    /**
+     * 是否对用户可见,不可见时不会自动加载更多,也不会播放加载动画
+     */
+    private boolean mIsVisibleToUser;
+    /**
+     * 加载更新的策略,null则不限制
+     */
+    private RefreshPolicy mRefreshPolicy;
+    /**
+     * 上次加载更新完成的时间,基于{@link SystemClock#elapsedRealtime()},0表示还没有加载过
+     */
+    private long mLastRefreshTime;
+    /**
+     * 被限制的加载更新不回调,停留片刻后直接显示完成状态
+     */
+    private final Runnable mThrottledRefreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            completeStartOrPullLoad();
+            mThrottledRefreshPending = false;
+        }
+    };
+    /**
+     * 是否有等待显示完成状态的被限制的加载更新
+     */
+    private boolean mThrottledRefreshPending;
+
+    /**
+     * 共享的header和footer,null则不复用
+     */
+    private LoadingLayoutPool mLoadingLayoutPool;
+    /**
+     * header和footer是否已经放回了pool,此时使用的是占位
+     */
+    private boolean mIsLoadingLayoutReleased;
+    /**
+     * header或者footer被替换了,下次布局时需要更新UI
+     */
+    private boolean mIsLoadingLayoutChanged;
+    /**
+     * detach之后超过{@link #RELEASE_LOADING_LAYOUT_DELAY}仍然没有重新attach,放回header和footer
+     */
+    private final Runnable mReleaseLoadingLayoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!ViewCompat.isAttachedToWindow(PullToLoadBaseView.this)) {
+                releaseLoadingLayouts();
+            }
+        }
+    };
+    /**
+     * 重新attach之后取回header和footer
+     */
+    private final Runnable mAcquireLoadingLayoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (ViewCompat.isAttachedToWindow(PullToLoadBaseView.this)) {
+                acquireLoadingLayouts();
+            }
+        }
+    };
 
     public PullToLoadBaseView(Context context) {
         this(context, null);
@@ -213,20 +471,41 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
 
     public PullToLoadBaseView(Context context, AttributeSet attrs) {
         super(context, attrs);
+        init(context, PullToLoadConfig.fromAttributes(context, attrs));
+    }
+
+    /**
+     * 使用代码中的配置创建,不解析AttributeSet.配置对象是线程安全的,可以在任意线程创建和共享,
+     * 但是视图必须在主线程创建
+     * @param context context
+     * @param config 配置
+     */
+    public PullToLoadBaseView(Context context, PullToLoadConfig config) {
+        super(context);
+        init(context, config);
+    }
 
-        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.PullToLoadView);
-        mIsUnderBar = typedArray.getBoolean(R.styleable.PullToLoadView_underBar, false);
-        mContentLayoutId = typedArray.getResourceId(R.styleable.PullToLoadView_content_view_id, 0);
-        mHeaderLayoutId = typedArray.getResourceId(R.styleable.PullToLoadView_header_view_id, 0);
-        mFooterLayoutId = typedArray.getResourceId(R.styleable.PullToLoadView_footer_view_id, 0);
-        mBarSize = typedArray.getDimensionPixelSize(R.styleable.PullToLoadView_bar_size, 0);
-        mHeaderBgResId = typedArray
-                .getResourceId(R.styleable.PullToLoadView_underbar_header_background, 0);
-        mScrollTopDuration = typedArray.getInt(R.styleable.PullToLoadView_scroll_to_top_duration,
-                DEFAULT_ANIM_DURATION);
-        mScrollBottomDuration = typedArray.getInt(
-                R.styleable.PullToLoadView_scroll_to_bottom_duration, DEFAULT_ANIM_DURATION);
-        typedArray.recycle();
+    private void init(Context context, PullToLoadConfig config) {
+        // 子类会在创建时访问WebView等只能在主线程使用的接口
+        if (!isMainThread()) {
+            throw new IllegalStateException("PullToLoad view should be created on the main thread");
+        }
+        mIsUnderBar = config.isUnderBar();
+        mContentLayoutId = config.getContentLayoutId();
+        mHeaderLayoutId = config.getHeaderLayoutId();
+        mFooterLayoutId = config.getFooterLayoutId();
+        mHeaderFactory = config.getHeaderFactory();
+        mFooterFactory = config.getFooterFactory();
+        mBarSize = Math.max(config.getBarSize(), 0);
+        mHeaderBgResId = config.getHeaderBgResId();
+        mScrollTopDuration = config.getScrollTopDuration();
+        mScrollBottomDuration = config.getScrollBottomDuration();
+        if (config.getMode() != null) {
+            // 子类还没有初始化,不能调用setMode
+            mLoadMode = config.getMode();
+            mOverScrollStart = mLoadMode.canOverScrollStart();
+            mOverScrollEnd = mLoadMode.canOverScrollEnd();
+        }
         if (getScrollOrientation() == Orientation.VERTICAL && mBarSize == 0 && mIsUnderBar) {
             mBarSize = getActionBarSize();
         }
@@ -239,8 +518,9 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
         mPaddingBottom = super.getPaddingBottom();
         super.setPadding(0, 0, 0, 0);
 
-        ViewConfiguration config = ViewConfiguration.get(context);
-        mTouchSlop = config.getScaledTouchSlop();
+        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+        mLoadingLayoutPool = config.getLoadingLayoutPool() != null
+                ? config.getLoadingLayoutPool() : LoadingLayoutPool.from(context);
 
         initView();
     }
@@ -256,9 +536,162 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
         super.onLayout(changed, left, top, right, bottom);
 
-        if (changed) {
+        if (changed || mIsLoadingLayoutChanged) {
+            mIsLoadingLayoutChanged = false;
             updateUI(mIsUnderBar);
         }
+        // 布局完成,header有了大小,执行等待中的手动加载
+        if (mManualUpdatePending && mIsVisibleToUser && mHeader.getSize() > 0) {
+            removeCallbacks(mManualUpdateRunnable);
+            post(mManualUpdateRunnable);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // detach期间的滚动没有动画,回调不会执行,这里补上隐藏header
+        if (mState == State.RESET && mHeader != null) {
+            mHeader.hide();
+        }
+        getContext().getApplicationContext().registerComponentCallbacks(mTrimMemoryCallbacks);
+        mMainHandler.removeCallbacks(mReleaseLoadingLayoutRunnable);
+        if (mIsLoadingLayoutReleased) {
+            // attach过程中不能添加子视图
+            mMainHandler.post(mAcquireLoadingLayoutRunnable);
+        }
+    }
+
+    /**
+     * 释放动画和等待中的任务,避免它们持有view直到执行.等待中的手动加载被取消,很久之后重新attach时
+     * 不会执行过期的加载,等待中的加载回调已经在不可见时立即执行
+     */
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        cancelLoading();
+        if (mThrottledRefreshPending) {
+            removeCallbacks(mThrottledRefreshRunnable);
+            mThrottledRefreshRunnable.run();
+        }
+        cancelSpeculativeLoad();
+        if (mValueAnimator != null) {
+            mValueAnimator.end();
+            mValueAnimator.removeAllUpdateListeners();
+            mValueAnimator.removeAllListeners();
+            mValueAnimator = null;
+        }
+        if (mFrameMetricsRecorder != null) {
+            mFrameMetricsRecorder.stop();
+        }
+        getContext().getApplicationContext().unregisterComponentCallbacks(mTrimMemoryCallbacks);
+        if (mPreInflateIdleHandler != null) {
+            Looper.myQueue().removeIdleHandler(mPreInflateIdleHandler);
+            mPreInflateIdleHandler = null;
+        }
+        mMainHandler.removeCallbacks(mAcquireLoadingLayoutRunnable);
+        if (mLoadingLayoutPool != null) {
+            // RecyclerView或者ViewPager回收复用时会很快重新attach,等待一段时间确认视图真的被销毁了
+            mMainHandler.postDelayed(mReleaseLoadingLayoutRunnable, RELEASE_LOADING_LAYOUT_DELAY);
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateVisibleToUser();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateVisibleToUser();
+    }
+
+    /**
+     * 设置是否对用户可见,用于view本身可见但是用户看不到的情况,例如ViewPager中不在当前页的Fragment,
+     * 可以在Fragment的setUserVisibleHint中调用
+     * @param isVisibleToUser 是否对用户可见
+     */
+    public void setUserVisibleHint(boolean isVisibleToUser) {
+        mUserVisibleHint = isVisibleToUser;
+        updateVisibleToUser();
+    }
+
+    /**
+     * @return 是否对用户可见,需要attach到window,自身和所有父view可见,并且{@link #setUserVisibleHint(boolean)}
+     * 没有设置为false
+     */
+    public boolean isVisibleToUser() {
+        return mIsVisibleToUser;
+    }
+
+    private void updateVisibleToUser() {
+        final boolean isVisibleToUser = mUserVisibleHint && getWindowVisibility() == VISIBLE
+                && isShown();
+        if (mIsVisibleToUser == isVisibleToUser) {
+            return;
+        }
+        mIsVisibleToUser = isVisibleToUser;
+        Log("visible to user " + isVisibleToUser);
+        if (isVisibleToUser) {
+            onShownToUser();
+        } else {
+            onHiddenFromUser();
+        }
+        setLoadingLayoutPaused(mHeader, !isVisibleToUser);
+        setLoadingLayoutPaused(mFooter, !isVisibleToUser);
+        updateFramePhases();
+        onVisibleToUserChanged(isVisibleToUser);
+    }
+
+    /**
+     * 不可见时停止所有等待中的工作:结束回弹动画,已经开始的加载立即回调,取消预加载,
+     * 手动加载推迟到重新可见之后
+     */
+    private void onHiddenFromUser() {
+        removeCallbacks(mManualUpdateRunnable);
+        if (mValueAnimator != null && mValueAnimator.isRunning()) {
+            mValueAnimator.end();
+        }
+        if (mPendingDispatch != null || mPendingAutoLoadDispatch != null) {
+            removeCallbacks(mDispatchRunnable);
+            dispatchLoad();
+        }
+        if (mSpeculativeToken != null && mState != State.RELEASE_TO_LOAD
+                && mState != State.RELEASE_TO_UPDATE) {
+            cancelSpeculativeLoad();
+        }
+    }
+
+    /**
+     * 重新可见,恢复推迟的手动加载,数据过期时自动加载更新
+     */
+    private void onShownToUser() {
+        if (mManualUpdatePending && mHeader != null && mHeader.getSize() > 0) {
+            removeCallbacks(mManualUpdateRunnable);
+            post(mManualUpdateRunnable);
+        }
+        refreshIfStale();
+    }
+
+    /**
+     * 对用户的可见性变化时提供给子类的处理机会,例如恢复推迟的自动加载更多
+     * @param isVisibleToUser 是否对用户可见
+     */
+    protected void onVisibleToUserChanged(boolean isVisibleToUser) {
+
+    }
+
+    /**
+     * 暂停或者恢复默认的{@link LoadingLayout}的动画,自定义的header和footer需要自行处理可见性
+     * @param loadingLayout header或者footer
+     * @param isPaused 是否暂停
+     */
+    protected static void setLoadingLayoutPaused(ILoadingLayout loadingLayout, boolean isPaused) {
+        if (loadingLayout instanceof LoadingLayout) {
+            ((LoadingLayout) loadingLayout).setPaused(isPaused);
+        }
     }
 
     /**
@@ -269,11 +702,11 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
         mIsNestedScrollEnable = ViewCompat.isNestedScrollingEnabled(mContentView);
         addContentView(mContentView);
 
-        mHeader = createHeader();
+        mHeader = obtainLoadingLayout(true);
         mHeaderView = mHeader.getLoadingView();
         addViewInternal(mHeaderView, 0, getLoadingLayoutLayoutParams());
 
-        mFooter = createFooter();
+        mFooter = obtainLoadingLayout(false);
         mFooterView = mFooter.getLoadingView();
         addViewInternal(mFooterView, getLoadingLayoutLayoutParams());
 
@@ -309,11 +742,128 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
         }
     }
 
+    /**
+     * @return 共享的header和footer,由Context实现{@link LoadingLayoutPool.Provider}提供,可能为null
+     */
+    protected LoadingLayoutPool getLoadingLayoutPool() {
+        return mLoadingLayoutPool;
+    }
+
+    /**
+     * header设置了背景时不能和其它实例共享
+     * @param isHeader 是否是header
+     * @return 是否可以放回pool
+     */
+    private boolean isLoadingLayoutPoolable(boolean isHeader) {
+        if (mLoadingLayoutPool == null) {
+            return false;
+        }
+        // 由factory创建的视图不能按layout id区分
+        return isHeader ? mHeaderFactory == null && mHeaderBgResId == 0 : mFooterFactory == null;
+    }
+
+    /**
+     * 优先从pool中取出header或者footer,没有则创建
+     * @param isHeader 是否是header
+     * @return header或者footer
+     */
+    private ILoadingLayout obtainLoadingLayout(boolean isHeader) {
+        if (isLoadingLayoutPoolable(isHeader)) {
+            final ILoadingLayout loadingLayout = mLoadingLayoutPool.acquire(
+                    isHeader ? LoadingLayoutPool.ROLE_HEADER : LoadingLayoutPool.ROLE_FOOTER,
+                    getScrollOrientation(), isHeader ? mHeaderLayoutId : mFooterLayoutId);
+            if (loadingLayout != null) {
+                return loadingLayout;
+            }
+        }
+        return isHeader ? createHeader() : createFooter();
+    }
+
+    /**
+     * 放回header和footer,换成不占用视图的占位.正在加载时不放回
+     */
+    private void releaseLoadingLayouts() {
+        if (mIsLoadingLayoutReleased || mState != State.RESET || isAutoLoadingMore()) {
+            return;
+        }
+        mIsLoadingLayoutReleased = true;
+        if (isLoadingLayoutPoolable(true)) {
+            removeView(mHeaderView);
+            final ILoadingLayout header = mHeader;
+            mHeader = new DetachedLoadingLayout(getContext(), header);
+            mHeaderView = mHeader.getLoadingView();
+            mLoadingLayoutPool.release(LoadingLayoutPool.ROLE_HEADER, getScrollOrientation(),
+                    mHeaderLayoutId, header);
+        }
+        if (isLoadingLayoutPoolable(false)) {
+            removeView(mFooterView);
+            final ILoadingLayout footer = mFooter;
+            mFooter = new DetachedLoadingLayout(getContext(), footer);
+            mFooterView = mFooter.getLoadingView();
+            mLoadingLayoutPool.release(LoadingLayoutPool.ROLE_FOOTER, getScrollOrientation(),
+                    mFooterLayoutId, footer);
+        }
+        onReleaseLoadingLayouts(mLoadingLayoutPool);
+        Log("loading layouts released");
+    }
+
+    /**
+     * 取回header和footer,替换占位
+     */
+    private void acquireLoadingLayouts() {
+        if (!mIsLoadingLayoutReleased) {
+            return;
+        }
+        mIsLoadingLayoutReleased = false;
+        if (mFooter instanceof DetachedLoadingLayout) {
+            mFooter = restoreLoadingLayout(mFooter, false);
+            mFooterView = mFooter.getLoadingView();
+            addViewInternal(mFooterView, indexOfChild(mEdgeEffectView),
+                    getLoadingLayoutLayoutParams());
+        }
+        if (mHeader instanceof DetachedLoadingLayout) {
+            mHeader = restoreLoadingLayout(mHeader, true);
+            mHeaderView = mHeader.getLoadingView();
+            addViewInternal(mHeaderView, getLoadingLayoutLayoutParams());
+        }
+        onAcquireLoadingLayouts(mLoadingLayoutPool);
+        mIsLoadingLayoutChanged = true;
+        requestLayout();
+        Log("loading layouts acquired");
+    }
+
+    private ILoadingLayout restoreLoadingLayout(ILoadingLayout placeholder, boolean isHeader) {
+        final ILoadingLayout loadingLayout = obtainLoadingLayout(isHeader);
+        loadingLayout.onPull(State.RESET, 0);
+        loadingLayout.getLoadingView().setVisibility(placeholder.getLoadingView().getVisibility());
+        setLoadingLayoutPaused(loadingLayout, !mIsVisibleToUser);
+        return loadingLayout;
+    }
+
+    /**
+     * header和footer放回pool时提供给子类的处理机会,例如放回自动加载更多的footer
+     * @param loadingLayoutPool pool
+     */
+    protected void onReleaseLoadingLayouts(LoadingLayoutPool loadingLayoutPool) {
+
+    }
+
+    /**
+     * header和footer从pool中取回时提供给子类的处理机会
+     * @param loadingLayoutPool pool
+     */
+    protected void onAcquireLoadingLayouts(LoadingLayoutPool loadingLayoutPool) {
+
+    }
+
     /**
      * 创建header
      * @return header
      */
     protected ILoadingLayout createHeader() {
+        if (mHeaderFactory != null) {
+            return mHeaderFactory.create(getContext(), getScrollOrientation());
+        }
         if (mHeaderLayoutId != 0) {
             View view = LayoutInflater.from(getContext()).inflate(mHeaderLayoutId, this, false);
             if (view instanceof ILoadingLayout) {
@@ -331,6 +881,9 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
      * @return footer
      */
     protected ILoadingLayout createFooter() {
+        if (mFooterFactory != null) {
+            return mFooterFactory.create(getContext(), getScrollOrientation());
+        }
         if (mFooterLayoutId != 0) {
             View view = LayoutInflater.from(getContext()).inflate(mFooterLayoutId, this, false);
             if (view instanceof ILoadingLayout) {
@@ -448,12 +1001,20 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
      * @return ActionBar高度
      */
     private int getActionBarSize() {
+        final Resources.Theme theme = getContext().getTheme();
+        final Integer cached = sActionBarSizeCache.get(theme);
+        if (cached != null) {
+            return cached;
+        }
         final TypedArray a = getContext().obtainStyledAttributes(THEME_ATTRS);
+        final int actionBarSize;
         try {
-            return a.getDimensionPixelSize(0, 0);
+            actionBarSize = a.getDimensionPixelSize(0, 0);
         } finally {
             a.recycle();
         }
+        sActionBarSizeCache.put(theme, actionBarSize);
+        return actionBarSize;
     }
 
     /**
@@ -538,9 +1099,119 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
         if (conditionType <= 0) {
             throw new IllegalArgumentException("condition type should be greater than 0");
         }
+        mConditionViewFactories.remove(conditionType);
         addConditionViewInternal(conditionView, conditionType);
     }
 
+    @Override
+    public void addConditionView(final int layoutId, int conditionType) {
+        addConditionView(new ConditionViewFactory() {
+            @Override
+            public View createConditionView(Context context, ViewGroup parent) {
+                return LayoutInflater.from(context).inflate(layoutId, parent, false);
+            }
+        }, conditionType);
+    }
+
+    @Override
+    public void addConditionView(ConditionViewFactory factory, int conditionType) {
+        if (conditionType <= 0) {
+            throw new IllegalArgumentException("condition type should be greater than 0");
+        }
+        addConditionViewFactoryInternal(factory, conditionType);
+    }
+
+    /**
+     * 增加延迟创建的特殊视图,替换之前同一类型的视图
+     * @param factory 创建特殊视图
+     * @param conditionType 情况类型
+     */
+    protected void addConditionViewFactoryInternal(ConditionViewFactory factory,
+            int conditionType) {
+        if (factory == null) {
+            return;
+        }
+        final View oldView = mConditionViews.get(conditionType);
+        if (oldView != null && oldView != mCurConditionView) {
+            removeView(oldView);
+            mConditionViews.remove(conditionType);
+        }
+        mConditionViewFactories.put(conditionType, factory);
+    }
+
+    /**
+     * 在主线程空闲时逐个创建还没有创建的特殊视图,之后展示时不需要等待inflate.需要在主线程调用.
+     * inflate仍然在主线程执行,只是推迟到消息队列空闲时,每次空闲只创建一个,
+     * 单个布局很重时仍然可能造成一次卡顿
+     */
+    public void preInflateConditionViews() {
+        if (mPreInflateIdleHandler != null) {
+            return;
+        }
+        mPreInflateIdleHandler = new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                // 每次空闲只创建一个,避免长时间占用主线程
+                final boolean hasMore = inflateNextConditionView();
+                if (!hasMore) {
+                    mPreInflateIdleHandler = null;
+                }
+                return hasMore;
+            }
+        };
+        Looper.myQueue().addIdleHandler(mPreInflateIdleHandler);
+    }
+
+    /**
+     * 创建下一个还没有创建的特殊视图
+     * @return 是否还有没有创建的
+     */
+    private boolean inflateNextConditionView() {
+        boolean inflated = false;
+        for (int i = 0; i < mConditionViewFactories.size(); i++) {
+            final int conditionType = mConditionViewFactories.keyAt(i);
+            if (mConditionViews.get(conditionType) != null) {
+                continue;
+            }
+            if (inflated) {
+                return true;
+            }
+            inflateConditionView(conditionType);
+            inflated = true;
+        }
+        return false;
+    }
+
+    /**
+     * 通过factory创建特殊视图
+     * @param conditionType 情况类型
+     * @return 特殊视图,没有factory则返回null
+     */
+    private View inflateConditionView(int conditionType) {
+        final ConditionViewFactory factory = mConditionViewFactories.get(conditionType);
+        if (factory == null) {
+            return null;
+        }
+        final View view = factory.createConditionView(getContext(), this);
+        addConditionViewInternal(view, conditionType);
+        Log("condition view inflated " + conditionType);
+        return view;
+    }
+
+    /**
+     * 释放没有展示的延迟创建的特殊视图,再次展示时重新创建.内存不足时会自动调用
+     */
+    public void trimConditionViews() {
+        for (int i = 0; i < mConditionViewFactories.size(); i++) {
+            final int conditionType = mConditionViewFactories.keyAt(i);
+            final View view = mConditionViews.get(conditionType);
+            if (view != null && view != mCurConditionView) {
+                removeView(view);
+                mConditionViews.remove(conditionType);
+            }
+        }
+    }
+
     protected void addConditionViewInternal(View conditionView, int conditionType) {
         if (conditionView == null) {
             return;
@@ -563,6 +1234,9 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
     @Override
     public void showConditionView(int conditionType) {
         View view = mConditionViews.get(conditionType, null);
+        if (view == null) {
+            view = inflateConditionView(conditionType);
+        }
         if (view == null) {
             return;
         }
@@ -576,91 +1250,501 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
         }
     }
 
-    @Override
-    public void hideConditionView(int conditionType) {
-        if (mCurConditionView != null) {
-            mCurConditionView.setVisibility(GONE);
-            mCurConditionView = null;
+    @Override
+    public void hideConditionView(int conditionType) {
+        if (mCurConditionView != null) {
+            mCurConditionView.setVisibility(GONE);
+            mCurConditionView = null;
+        }
+        if (!mLoadNewInAll) {
+            mContentView.setVisibility(View.VISIBLE);
+        }
+    }
+
+    @Override
+    public void loadNewInAllCondition(boolean loadNewInAll) {
+        mLoadNewInAll = loadNewInAll;
+    }
+
+    @Override
+    public boolean isLoading() {
+        return mState == State.LOADING || mAutoLoadState == State.LOADING;
+    }
+
+    /**
+     * @return 是否正在进行拉动触发的加载更多,和加载更新共用滚动,不能同时进行
+     */
+    private boolean isPullLoading() {
+        return mState == State.LOADING;
+    }
+
+    /**
+     * @return 是否正在自动加载更多
+     */
+    protected boolean isAutoLoadingMore() {
+        return mAutoLoadState == State.LOADING;
+    }
+
+    /**
+     * 设置加载更新和自动加载更多是否可以同时进行,默认{@link ConcurrentLoadPolicy#SEQUENTIAL}不同时进行.
+     * 同时进行时{@link #onLoadComplete()}无法区分是哪一个加载的结果,会全部结束,
+     * 应该使用{@link #commitLoad(LoadToken, Runnable, boolean)}按凭证分别提交
+     * @param concurrentLoadPolicy 处理方式
+     */
+    public void setConcurrentLoadPolicy(ConcurrentLoadPolicy concurrentLoadPolicy) {
+        mConcurrentLoadPolicy = concurrentLoadPolicy;
+    }
+
+    /**
+     * 开始自动加载更多,独立于加载更新的状态,可以和加载更新同时进行
+     * @return true则开始了加载
+     */
+    protected boolean startAutoLoadMore() {
+        if (isAutoLoadingMore() || mIsAllLoaded || isPullLoading()) {
+            return false;
+        }
+        if (!mIsVisibleToUser) {
+            // 不可见时不加载,重新可见后由子类再次检查
+            return false;
+        }
+        if (isUpdating() && mConcurrentLoadPolicy != ConcurrentLoadPolicy.KEEP_LOAD_MORE) {
+            return false;
+        }
+        if (mPullToLoadListener == null && mPagePipeline == null) {
+            return false;
+        }
+        mAutoLoadState = State.LOADING;
+        mAutoLoadToken = new LoadToken(LoadMode.END, ++mLoadGeneration);
+        publishLoadState();
+        Log("auto load more start");
+        mPendingAutoLoadDispatch = mAutoLoadToken;
+        scheduleDispatch();
+        return true;
+    }
+
+    /**
+     * 结束自动加载更多
+     * @param cancel true则取消凭证,之后提交的结果会被丢弃
+     */
+    private void finishAutoLoadMore(boolean cancel) {
+        if (!isAutoLoadingMore()) {
+            return;
+        }
+        if (cancel && mAutoLoadToken != null) {
+            mAutoLoadToken.cancel();
+        }
+        if (mPendingAutoLoadDispatch == mAutoLoadToken) {
+            mPendingAutoLoadDispatch = null;
+        }
+        mAutoLoadState = State.RESET;
+        mAutoLoadToken = null;
+        publishLoadState();
+        Log("auto load more finish");
+        onAutoLoadMoreFinished();
+        if (mPendingDispatch != null) {
+            // 等待自动加载更多结束的加载更新
+            scheduleDispatch();
+        }
+    }
+
+    /**
+     * 自动加载更多结束时提供给子类的处理机会,例如停止footer的动画
+     */
+    protected void onAutoLoadMoreFinished() {
+
+    }
+
+    @Override
+    public boolean isUpdating() {
+        return mState == State.UPDATING || mState == State.MANUAL_UPDATE;
+    }
+
+    @Override
+    public void setLoading() {
+        if (mManualUpdatePending) {
+            return;
+        }
+        mManualUpdatePending = true;
+        // 已经布局完成则立即执行,否则等待onLayout,不可见时等待重新可见
+        if (mIsVisibleToUser && mHeader.getSize() > 0) {
+            post(mManualUpdateRunnable);
+        }
+    }
+
+    @Override
+    public void cancelLoading() {
+        mManualUpdatePending = false;
+        removeCallbacks(mManualUpdateRunnable);
+    }
+
+    /**
+     * 结束进行中的加载.{@link ConcurrentLoadPolicy#SEQUENTIAL}时只有一个加载在进行中,结束的就是它;
+     * 允许同时进行时会全部结束,只结束其中一个时使用{@link #commitLoad(LoadToken, Runnable, boolean)}
+     */
+    @Override
+    public void onLoadComplete() {
+        if (mConcurrentLoadPolicy == ConcurrentLoadPolicy.SEQUENTIAL && isAutoLoadingMore()) {
+            // 加载更新还在等待自动加载更多结束,这是自动加载更多的结果
+            finishAutoLoadMore(false);
+            return;
+        }
+        if (isUpdating()) {
+            markRefreshed();
+        }
+        finishAutoLoadMore(false);
+        completeStartOrPullLoad();
+    }
+
+    /**
+     * 结束加载更新或者拉动触发的加载更多,不影响自动加载更多
+     */
+    protected void completeStartOrPullLoad() {
+        if (isUpdating() || isPullLoading()) {
+            mDone = true;
+            Log("complete");
+            setState(State.RESET);
+        }
+    }
+
+    @Override
+    public LoadToken getLoadToken() {
+        if (mDispatchingToken != null) {
+            return mDispatchingToken;
+        }
+        return mAutoLoadToken != null && !isUpdating() && !isPullLoading() ? mAutoLoadToken
+                : mLoadToken;
+    }
+
+    @Override
+    public boolean commitLoad(LoadToken token, Runnable dataApplier, boolean hasMore) {
+        if (token != null && (token.isCancelled() || token.isApplied()
+                || token != mLoadToken && token != mAutoLoadToken)) {
+            Log("commit dropped, token is stale or already applied");
+            return false;
+        }
+        final boolean isAutoLoad = token != null ? token == mAutoLoadToken
+                : isAutoLoadingMore() && !isUpdating() && !isPullLoading();
+        final LoadMode loadMode = token != null ? token.getLoadMode()
+                : isAutoLoad ? LoadMode.END : mCurLoadMode;
+        // 数据,footer和状态的变化在同一个消息中完成,只会触发一次布局
+        if (dataApplier != null) {
+            dataApplier.run();
+        }
+        if (loadMode == LoadMode.START) {
+            mPageCursor = 1;
+            markRefreshed();
+        } else if (loadMode == LoadMode.END) {
+            mPageCursor++;
+        }
+        setAllLoaded(!hasMore);
+        if (isAutoLoad) {
+            finishAutoLoadMore(false);
+            if (mFrameMetricsRecorder != null && mIsVisibleToUser) {
+                // 新的一页在接下来的几帧中布局和绘制
+                mFrameMetricsRecorder.enterPhaseForFrames(FramePhase.AUTO_LOAD_COMMIT, 3);
+            }
+        } else {
+            // 加载更新替换了列表,进行中的加载更多根据策略处理
+            if (loadMode == LoadMode.START
+                    && mConcurrentLoadPolicy != ConcurrentLoadPolicy.KEEP_LOAD_MORE) {
+                finishAutoLoadMore(true);
+            }
+            completeStartOrPullLoad();
+        }
+        if (token != null) {
+            token.commit();
+            token.markApplied();
+        }
+        onLoadCommitted(loadMode);
+        return true;
+    }
+
+    /**
+     * 一次加载的结果提交之后回调,数据已经设置到Adapter中,但是可能还没有布局
+     * @param loadMode 加载方向
+     */
+    protected void onLoadCommitted(LoadMode loadMode) {
+
+    }
+
+    @Override
+    public void postLoadComplete() {
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                onLoadComplete();
+            }
+        });
+    }
+
+    @Override
+    public void postCommitLoad(final LoadToken token, final Runnable dataApplier,
+            final boolean hasMore) {
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                commitLoad(token, dataApplier, hasMore);
+            }
+        });
+    }
+
+    /**
+     * 在主线程执行,已经在主线程则立即执行
+     * @param runnable 任务
+     */
+    private void runOnMainThread(Runnable runnable) {
+        if (isMainThread()) {
+            runnable.run();
+        } else {
+            mMainHandler.post(runnable);
+        }
+    }
+
+    private static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    @Override
+    public boolean isAllLoaded() {
+        return mIsAllLoaded;
+    }
+
+    @Override
+    public void setAllLoaded(boolean isAllLoaded) {
+        if (mIsAllLoaded == isAllLoaded) {
+            return;
+        }
+        mIsAllLoaded = isAllLoaded;
+        if (isAllLoaded) {
+            mOverScrollEnd = true;
+            mFooterView.setVisibility(INVISIBLE);
+        }
+        publishLoadState();
+    }
+
+    @Override
+    public void setOnPullToLoadListener(PullToLoadListener pullToLoadListener) {
+        mPullToLoadListener = pullToLoadListener;
+    }
+
+    @Override
+    public void setSpeculativeLoadListener(SpeculativeLoadListener speculativeLoadListener) {
+        mSpeculativeLoadListener = speculativeLoadListener;
+        if (speculativeLoadListener == null) {
+            cancelSpeculativeLoad();
+        }
+    }
+
+    /**
+     * 设置拉回到阈值以下后,预加载结果的保留时间
+     * @param ttl 保留时间,单位毫秒,0则立即取消
+     */
+    public void setSpeculativeLoadTtl(int ttl) {
+        mSpeculativeTtl = Math.max(ttl, 0);
+    }
+
+    @Override
+    public void onPull(State state, float distance) {
+        if (mCurLoadMode == null) {
+            return;
+        }
+        if (isUpdating() || isPullLoading()) {
+            return;
+        }
+        switch (mCurLoadMode) {
+        case START:
+            mHeader.onPull(state, distance);
+            break;
+        case END:
+            mFooter.onPull(state, distance);
+            break;
+        }
+    }
+
+    /**
+     * 先展示缓存的内容,再自动加载更新来替换缓存,首屏展示不再依赖网络.
+     * 缓存在后台线程读取,读取完成后在主线程回调,然后进入{@link State#MANUAL_UPDATE}.
+     * 加载成功后应该通过{@link PageSnapshotStore#writeAsync(java.util.List)}更新缓存
+     * @param snapshotStore 缓存
+     * @param callback 用于展示缓存内容,没有缓存时snapshot为null
+     */
+    public void loadWithSnapshot(PageSnapshotStore snapshotStore,
+            final PageSnapshotStore.Callback callback) {
+        snapshotStore.readAsync(new PageSnapshotStore.Callback() {
+            @Override
+            public void onSnapshotRead(PageSnapshotStore.Snapshot snapshot) {
+                callback.onSnapshotRead(snapshot);
+                setLoading();
+            }
+        });
+    }
+
+    /**
+     * 设置加载更新的策略.距离上次加载更新的时间小于最短间隔时,拉动或者{@link #setLoading()}
+     * 不会回调{@link PullToLoadListener#onLoadNew()},header停留片刻后直接显示完成状态
+     * @param refreshPolicy 策略,null则不限制
+     */
+    public void setRefreshPolicy(RefreshPolicy refreshPolicy) {
+        mRefreshPolicy = refreshPolicy;
+    }
+
+    /**
+     * 记录加载更新完成的时间,通过{@link #commitLoad(LoadToken, Runnable, boolean)}或者
+     * {@link #onLoadComplete()}完成加载更新时会自动记录,数据来自其它途径时可以手动调用
+     */
+    public void markRefreshed() {
+        mLastRefreshTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * @return 上次加载更新完成的时间,基于{@link SystemClock#elapsedRealtime()},0表示还没有加载过
+     */
+    public long getLastRefreshTime() {
+        return mLastRefreshTime;
+    }
+
+    /**
+     * @return 根据{@link RefreshPolicy}数据是否已经过期
+     */
+    public boolean isDataStale() {
+        return mRefreshPolicy != null
+                && mRefreshPolicy.isStale(mLastRefreshTime, SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * 数据过期并且开启了自动加载更新时,执行加载更新
+     */
+    private void refreshIfStale() {
+        if (mRefreshPolicy != null && mRefreshPolicy.isAutoRefreshWhenStale() && isDataStale()
+                && !isUpdating()) {
+            Log("data is stale, refresh");
+            setLoading();
+        }
+    }
+
+    /**
+     * @return 距离上次加载更新的时间是否小于{@link RefreshPolicy#getMinRefreshInterval()}
+     */
+    private boolean isRefreshThrottled() {
+        return mRefreshPolicy != null
+                && mRefreshPolicy.isThrottled(mLastRefreshTime, SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * 设置加载更多的流水线,同时保持多个分页请求,设置后加载更多不再回调
+     * {@link PullToLoadListener#onLoadMore()},加载更新时会取消所有预加载并从第一页重新开始.
+     * 按顺序到达的页交付给{@link PagePipeline.PageConsumer}后,仍需调用{@link #onLoadComplete()}.
+     * 流水线{@link PagePipeline#setEndReached(int)}后会标记全部加载完毕
+     * @param pagePipeline 流水线,null则关闭
+     */
+    public void setPagePipeline(PagePipeline<?> pagePipeline) {
+        if (mPagePipeline != null && mPagePipeline != pagePipeline) {
+            mPagePipeline.cancelAll();
+            mPagePipeline.setOnEndReachedCallback(null);
         }
-        if (!mLoadNewInAll) {
-            mContentView.setVisibility(View.VISIBLE);
+        mPagePipeline = pagePipeline;
+        if (pagePipeline != null) {
+            pagePipeline.setOnEndReachedCallback(mPipelineEndReachedRunnable);
         }
     }
 
-    @Override
-    public void loadNewInAllCondition(boolean loadNewInAll) {
-        mLoadNewInAll = loadNewInAll;
+    /**
+     * 设置已加载的页数,会在配置变化或者进程重建时保存,使用{@link #commitLoad}提交结果时会自动更新
+     * @param pageCursor 已加载的页数
+     */
+    public void setPageCursor(int pageCursor) {
+        mPageCursor = pageCursor;
     }
 
-    @Override
-    public boolean isLoading() {
-        return mState == State.LOADING;
+    /**
+     * @return 已加载的页数
+     */
+    public int getPageCursor() {
+        return mPageCursor;
     }
 
-    @Override
-    public boolean isUpdating() {
-        return mState == State.UPDATING || mState == State.MANUAL_UPDATE;
+    /**
+     * 设置分页数据的保存和恢复,需要为视图设置id才会保存状态
+     * @param pageStateHandler handler
+     */
+    public void setPageStateHandler(PageStateHandler pageStateHandler) {
+        mPageStateHandler = pageStateHandler;
     }
 
-    @Override
-    public void setLoading() {
-        postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                if (!isUpdating() && !isLoading()) {
-                    setState(State.MANUAL_UPDATE);
-                }
-            }
-        }, 300);
+    /**
+     * @return true则表示已经从保存的状态中恢复,此时不需要再次加载第一页
+     */
+    public boolean isStateRestored() {
+        return mIsStateRestored;
     }
 
     @Override
-    public void onLoadComplete() {
-        if (isUpdating() || isLoading()) {
-            mDone = true;
-            Log("complete");
-            setState(State.RESET);
+    protected Parcelable onSaveInstanceState() {
+        final SavedState savedState = new SavedState(super.onSaveInstanceState());
+        savedState.mState = mState;
+        savedState.mLoadMode = mLoadMode;
+        savedState.mIsAllLoaded = mIsAllLoaded;
+        savedState.mPageCursor = mPageCursor;
+        savedState.mContentState = onSaveContentState();
+        if (mPageStateHandler != null) {
+            savedState.mPageState = mPageStateHandler.onSavePageState();
         }
+        return savedState;
     }
 
     @Override
-    public boolean isAllLoaded() {
-        return mIsAllLoaded;
-    }
-
-    @Override
-    public void setAllLoaded(boolean isAllLoaded) {
-        if (mIsAllLoaded == isAllLoaded) {
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
             return;
         }
-        mIsAllLoaded = isAllLoaded;
-        if (isAllLoaded) {
-            mOverScrollEnd = true;
-            mFooterView.setVisibility(INVISIBLE);
+        final SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        setMode(savedState.mLoadMode);
+        mPageCursor = savedState.mPageCursor;
+        if (mPageStateHandler != null && savedState.mPageState != null) {
+            mPageStateHandler.onRestorePageState(savedState.mPageState);
+        }
+        setAllLoaded(savedState.mIsAllLoaded);
+        if (savedState.mContentState != null) {
+            onRestoreContentState(savedState.mContentState);
+        }
+        mIsStateRestored = true;
+        // 加载更新的请求随着页面销毁丢失了,需要重新加载,加载更多会在再次滚动到底部时触发
+        if (savedState.mState == State.UPDATING || savedState.mState == State.MANUAL_UPDATE) {
+            setLoading();
         }
     }
 
-    @Override
-    public void setOnPullToLoadListener(PullToLoadListener pullToLoadListener) {
-        mPullToLoadListener = pullToLoadListener;
+    /**
+     * 保存内容区域的滚动位置,子类可以根据内容视图的类型覆写
+     * @return 滚动位置
+     */
+    protected Parcelable onSaveContentState() {
+        final Bundle bundle = new Bundle();
+        bundle.putInt("scrollX", mContentView.getScrollX());
+        bundle.putInt("scrollY", mContentView.getScrollY());
+        return bundle;
     }
 
-    @Override
-    public void onPull(State state, float distance) {
-        if (mCurLoadMode == null) {
-            return;
-        }
-        if (isUpdating() || isLoading()) {
+    /**
+     * 恢复内容区域的滚动位置
+     * @param contentState {@link #onSaveContentState()}保存的状态
+     */
+    protected void onRestoreContentState(Parcelable contentState) {
+        if (!(contentState instanceof Bundle)) {
             return;
         }
-        switch (mCurLoadMode) {
-        case START:
-            mHeader.onPull(state, distance);
-            break;
-        case END:
-            mFooter.onPull(state, distance);
-            break;
-        }
+        final Bundle bundle = (Bundle) contentState;
+        final int scrollX = bundle.getInt("scrollX");
+        final int scrollY = bundle.getInt("scrollY");
+        // 需要等待内容布局完成后再滚动
+        post(new Runnable() {
+            @Override
+            public void run() {
+                mContentView.scrollTo(scrollX, scrollY);
+            }
+        });
     }
 
     public int getBarHeight() {
@@ -710,7 +1794,7 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
                 mEndY = mStartY = y - 1;
             }
             // 如果支持nested scroll并且是在加载中,则统一由nested scroll来处理
-            if (mIsNestedScrollEnable && (isUpdating() || isLoading())) {
+            if (mIsNestedScrollEnable && (isUpdating() || isPullLoading())) {
                 mIsIntercepted = false;
                 mHandleByNestedParent = false;
                 return false;
@@ -945,17 +2029,23 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
      * @param state 状态
      */
     protected void setState(State state) {
-        if (mState == state || state != State.RESET && (isUpdating() || isLoading())) {
+        if (mState == state || state != State.RESET && (isUpdating() || isPullLoading())) {
             return;
         }
         switch (state) {
         case PULL_FROM_START:
+            if (mState == State.RELEASE_TO_UPDATE) {
+                scheduleSpeculativeCancel();
+            }
             if (!mOverScrollStart) {
                 mHeader.show();
                 onPull(state, 0);
             }
             break;
         case PULL_FROM_END:
+            if (mState == State.RELEASE_TO_LOAD) {
+                scheduleSpeculativeCancel();
+            }
             if (!mOverScrollEnd) {
                 mFooter.show();
                 onPull(state, 0);
@@ -971,9 +2061,11 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
             break;
         case RELEASE_TO_LOAD:
             onPull(state, mFooter.getSize());
+            startSpeculativeLoad(LoadMode.END);
             break;
         case RELEASE_TO_UPDATE:
             onPull(state, -mHeader.getSize());
+            startSpeculativeLoad(LoadMode.START);
             break;
         case MANUAL_UPDATE:
             mCurLoadMode = LoadMode.START;
@@ -989,6 +2081,94 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
             break;
         }
         mState = state;
+        publishLoadState();
+    }
+
+    /**
+     * 发布新的加载状态快照
+     */
+    private void publishLoadState() {
+        updateFramePhases();
+        final LoadStateSnapshot snapshot = mLoadStateSnapshot;
+        if (snapshot.getState() == mState && snapshot.getCurLoadMode() == mCurLoadMode
+                && snapshot.getGeneration() == mLoadGeneration
+                && snapshot.isAllLoaded() == mIsAllLoaded
+                && snapshot.isAutoLoadingMore() == isAutoLoadingMore()) {
+            return;
+        }
+        mLoadStateSnapshot = new LoadStateSnapshot(mState, mCurLoadMode, mLoadGeneration,
+                mIsAllLoaded, isAutoLoadingMore());
+    }
+
+    @Override
+    public LoadStateSnapshot getLoadStateSnapshot() {
+        return mLoadStateSnapshot;
+    }
+
+    /**
+     * 开启或者关闭帧耗时的统计,按拉动,滚动到位,加载中和自动加载更多提交几个阶段分别统计,
+     * 用于发现自定义的{@link ILoadingLayout}或者列表在这些阶段的掉帧.关闭时清空统计
+     * @param isEnabled true则开启
+     */
+    public void setFrameMetricsEnabled(boolean isEnabled) {
+        if (isEnabled == (mFrameMetricsRecorder != null)) {
+            return;
+        }
+        if (isEnabled) {
+            mFrameMetricsRecorder = new FrameMetricsRecorder(getContext());
+            updateFramePhases();
+            if (mValueAnimator != null && mValueAnimator.isRunning()) {
+                mFrameMetricsRecorder.setPhaseActive(FramePhase.SETTLING, true);
+            }
+        } else {
+            mFrameMetricsRecorder.stop();
+            mFrameMetricsRecorder = null;
+        }
+    }
+
+    public boolean isFrameMetricsEnabled() {
+        return mFrameMetricsRecorder != null;
+    }
+
+    /**
+     * @param phase 阶段
+     * @return 这个阶段到目前为止的帧耗时统计,没有开启时返回null
+     */
+    public FrameStats getFrameStats(FramePhase phase) {
+        return mFrameMetricsRecorder == null ? null : mFrameMetricsRecorder.getStats(phase);
+    }
+
+    /**
+     * 清空帧耗时的统计,例如每次上报之后
+     */
+    public void resetFrameStats() {
+        if (mFrameMetricsRecorder != null) {
+            mFrameMetricsRecorder.reset();
+        }
+    }
+
+    /**
+     * 根据当前状态进入或者退出拉动和加载中的阶段,对用户不可见时没有绘制,不统计
+     */
+    private void updateFramePhases() {
+        if (mFrameMetricsRecorder == null) {
+            return;
+        }
+        if (!mIsVisibleToUser) {
+            mFrameMetricsRecorder.stop();
+            return;
+        }
+        mFrameMetricsRecorder.setPhaseActive(FramePhase.DRAGGING,
+                mState == State.PULL_FROM_START || mState == State.PULL_FROM_END
+                        || mState == State.RELEASE_TO_UPDATE || mState == State.RELEASE_TO_LOAD);
+        mFrameMetricsRecorder.setPhaseActive(FramePhase.LOADING,
+                isUpdating() || isLoading());
+    }
+
+    private void setFramePhaseActive(FramePhase phase, boolean isActive) {
+        if (mFrameMetricsRecorder != null) {
+            mFrameMetricsRecorder.setPhaseActive(phase, isActive);
+        }
     }
 
     /**
@@ -1001,28 +2181,247 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
         switch (mCurLoadMode) {
         case START:
         default:
-            setAllLoaded(false);
             smoothScrollTo(-mHeader.getSize());
             mNestedScrollOffset = -mHeader.getSize();
-            if (mPullToLoadListener != null) {
-                mPullToLoadListener.onLoadNew();
+            if (isRefreshThrottled()) {
+                // 数据刚刚更新过,不再请求,header显示刚刚更新过,和真正的更新完成区分
+                Log("refresh throttled");
+                mHeader.onPull(State.JUST_UPDATED, -mHeader.getSize());
+                mThrottledRefreshPending = true;
+                postDelayed(mThrottledRefreshRunnable, THROTTLED_REFRESH_DELAY);
+                break;
+            }
+            setAllLoaded(false);
+            // 加载更新优先,取消所有预加载,加载更新之后的加载更多从第一页开始
+            if (mPagePipeline != null) {
+                mPagePipeline.restart();
+            }
+            if (commitSpeculativeLoad(LoadMode.START)) {
+                break;
             }
+            mLoadToken = new LoadToken(LoadMode.START, ++mLoadGeneration);
+            mPendingDispatch = mLoadToken;
+            scheduleDispatch();
             break;
         case END:
-            if (mPullToLoadListener == null) {
+            if (mPullToLoadListener == null && mSpeculativeToken == null
+                    && mPagePipeline == null) {
                 return;
             }
-            if (mLoadMode.isAutoLoadMore()) {
-                mPullToLoadListener.onLoadMore();
-            } else {
+            if (!mLoadMode.isAutoLoadMore()) {
                 mNestedScrollOffset = mFooter.getSize();
                 smoothScrollTo(mFooter.getSize());
-                mPullToLoadListener.onLoadMore();
             }
+            if (commitSpeculativeLoad(LoadMode.END)) {
+                break;
+            }
+            mLoadToken = new LoadToken(LoadMode.END, ++mLoadGeneration);
+            mPendingDispatch = mLoadToken;
+            scheduleDispatch();
+            break;
+        }
+    }
+
+    /**
+     * 设置加载回调的时机,默认立即回调.回调中的耗时操作会阻塞回弹动画的第一帧,
+     * 可以延迟到下一帧或者动画开始之后
+     * @param dispatchPolicy 回调时机
+     */
+    public void setDispatchPolicy(DispatchPolicy dispatchPolicy) {
+        mDispatchPolicy = dispatchPolicy == null ? DispatchPolicy.IMMEDIATE : dispatchPolicy;
+    }
+
+    /**
+     * 根据{@link #mDispatchPolicy}安排等待中的加载回调
+     */
+    private void scheduleDispatch() {
+        switch (mDispatchPolicy) {
+        case IMMEDIATE:
+        default:
+            dispatchLoad();
+            break;
+        case AFTER_ANIMATION_START:
+            if (mValueAnimator != null && mValueAnimator.isRunning()) {
+                mDispatchOnAnimationFrame = true;
+                break;
+            }
+        case NEXT_FRAME:
+            ViewCompat.postOnAnimation(this, mDispatchRunnable);
             break;
         }
     }
 
+    /**
+     * 回弹动画的一帧已经开始,此时再安排回调
+     */
+    private void onAnimationFrameForDispatch() {
+        if (mDispatchOnAnimationFrame) {
+            mDispatchOnAnimationFrame = false;
+            post(mDispatchRunnable);
+        }
+    }
+
+    /**
+     * 执行等待中的加载回调
+     */
+    private void dispatchLoad() {
+        mDispatchOnAnimationFrame = false;
+        final LoadToken autoLoadToken = mPendingAutoLoadDispatch;
+        mPendingAutoLoadDispatch = null;
+        // 不同时进行时,自动加载更多结束后再回调加载更新
+        final LoadToken token = mConcurrentLoadPolicy == ConcurrentLoadPolicy.SEQUENTIAL
+                && isAutoLoadingMore() ? null : mPendingDispatch;
+        if (token != null) {
+            mPendingDispatch = null;
+        }
+        if (token != null) {
+            dispatchLoad(token);
+        }
+        if (autoLoadToken != null) {
+            dispatchLoad(autoLoadToken);
+        }
+    }
+
+    private void dispatchLoad(LoadToken token) {
+        mDispatchingToken = token;
+        try {
+            switch (token.getLoadMode()) {
+            case START:
+            default:
+                if (token == mPendingSpeculativeCommit) {
+                    dispatchSpeculativeCommit(token);
+                } else if (mPullToLoadListener != null) {
+                    mPullToLoadListener.onLoadNew();
+                }
+                break;
+            case END:
+                if (token == mPendingSpeculativeCommit) {
+                    dispatchSpeculativeCommit(token);
+                } else if (mPagePipeline != null) {
+                    if (!mPagePipeline.requestMore()) {
+                        // 已经没有更多的页,不会有结果,直接结束这次加载
+                        setAllLoaded(true);
+                        if (token == mAutoLoadToken) {
+                            finishAutoLoadMore(false);
+                        } else {
+                            completeStartOrPullLoad();
+                        }
+                    }
+                } else if (mPullToLoadListener != null) {
+                    mPullToLoadListener.onLoadMore();
+                }
+                break;
+            }
+        } finally {
+            mDispatchingToken = null;
+        }
+    }
+
+    private void dispatchSpeculativeCommit(LoadToken token) {
+        mPendingSpeculativeCommit = null;
+        Log("speculative load commit " + token.getLoadMode());
+        if (mSpeculativeLoadListener != null) {
+            mSpeculativeLoadListener.onPrefetchCommit(token);
+        }
+    }
+
+    /**
+     * 取消等待中的加载更新或者拉动触发的加载更多的回调,自动加载更多不受影响
+     */
+    private void cancelDispatch() {
+        final LoadToken speculativeToken = mPendingSpeculativeCommit;
+        mPendingSpeculativeCommit = null;
+        if (speculativeToken != null && speculativeToken == mPendingDispatch) {
+            // 确认使用的回调还没有发出,预加载的结果不会再被使用
+            speculativeToken.cancel();
+            if (mSpeculativeLoadListener != null) {
+                mSpeculativeLoadListener.onPrefetchCancel(speculativeToken);
+            }
+        }
+        mPendingDispatch = null;
+        if (mPendingAutoLoadDispatch == null) {
+            mDispatchOnAnimationFrame = false;
+            removeCallbacks(mDispatchRunnable);
+        }
+    }
+
+    /**
+     * 拉动超过阈值时开始预加载,如果保留时间内已经有同一方向的预加载,则继续使用
+     * @param loadMode {@link LoadMode#START}或者{@link LoadMode#END}
+     */
+    private void startSpeculativeLoad(LoadMode loadMode) {
+        if (mSpeculativeLoadListener == null) {
+            return;
+        }
+        removeCallbacks(mCancelSpeculativeRunnable);
+        if (mSpeculativeToken != null) {
+            if (mSpeculativeToken.getLoadMode() == loadMode) {
+                return;
+            }
+            cancelSpeculativeLoad();
+        }
+        mSpeculativeToken = new LoadToken(loadMode, ++mLoadGeneration);
+        Log("speculative load start " + loadMode);
+        mSpeculativeLoadListener.onPrefetch(mSpeculativeToken);
+    }
+
+    /**
+     * 松手后确认使用预加载的结果,和普通的加载一样按照{@link #mDispatchPolicy}回调
+     * {@link SpeculativeLoadListener#onPrefetchCommit(LoadToken)}
+     * @param loadMode 当前加载的方向
+     * @return true则表示使用了预加载,不需要再回调{@link PullToLoadListener}
+     */
+    private boolean commitSpeculativeLoad(LoadMode loadMode) {
+        final LoadToken token = mSpeculativeToken;
+        if (token == null || mSpeculativeLoadListener == null) {
+            return false;
+        }
+        if (token.getLoadMode() != loadMode) {
+            cancelSpeculativeLoad();
+            return false;
+        }
+        removeCallbacks(mCancelSpeculativeRunnable);
+        mSpeculativeToken = null;
+        token.commit();
+        mLoadToken = token;
+        mPendingSpeculativeCommit = token;
+        mPendingDispatch = token;
+        scheduleDispatch();
+        return true;
+    }
+
+    /**
+     * 拉回到阈值以下,在保留时间后取消预加载
+     */
+    private void scheduleSpeculativeCancel() {
+        if (mSpeculativeToken == null) {
+            return;
+        }
+        removeCallbacks(mCancelSpeculativeRunnable);
+        if (mSpeculativeTtl == 0) {
+            cancelSpeculativeLoad();
+        } else {
+            postDelayed(mCancelSpeculativeRunnable, mSpeculativeTtl);
+        }
+    }
+
+    /**
+     * 取消预加载
+     */
+    private void cancelSpeculativeLoad() {
+        removeCallbacks(mCancelSpeculativeRunnable);
+        final LoadToken token = mSpeculativeToken;
+        if (token == null) {
+            return;
+        }
+        mSpeculativeToken = null;
+        token.cancel();
+        Log("speculative load cancel " + token.getLoadMode());
+        if (mSpeculativeLoadListener != null) {
+            mSpeculativeLoadListener.onPrefetchCancel(token);
+        }
+    }
+
     protected void manualLoad() {
         mCurLoadMode = LoadMode.START;
         onLoading();
@@ -1032,7 +2431,13 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
      * 重置状态
      */
     protected void reset() {
-        onPull(State.RESET, mDone
+        // 被限制的加载更新保留刚刚更新过的文案,不显示完成
+        final boolean isThrottledRefresh = mThrottledRefreshPending;
+        mThrottledRefreshPending = false;
+        removeCallbacks(mThrottledRefreshRunnable);
+        scheduleSpeculativeCancel();
+        cancelDispatch();
+        onPull(State.RESET, mDone && !isThrottledRefresh
                 ? mCurLoadMode == LoadMode.START ? mHeader.getSize() : -mFooter.getSize() : 0);
         smoothScrollTo(0);
         mDone = false;
@@ -1042,6 +2447,7 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
         mEndY = mStartY = 0;
         mNestedScrollOffset = 0;
         mState = State.RESET;
+        publishLoadState();
     }
 
     protected State getState() {
@@ -1108,7 +2514,7 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
             mHeader.show();
             return;
         }
-        if (isLoading()) {
+        if (isPullLoading()) {
             return;
         }
         final int size = getLoadingLayoutSize();
@@ -1132,7 +2538,7 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
     }
 
     private void scroll(float scrollValue, boolean isDown) {
-        if (isUpdating() || isLoading()) {
+        if (isUpdating() || isPullLoading()) {
             switch (mCurLoadMode) {
             case START:
             default:
@@ -1201,6 +2607,19 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
         if (oldScrollValue == scrollValue) {
             return;
         }
+        if (!ViewCompat.isAttachedToWindow(this)) {
+            // 没有attach时不创建动画,直接滚动到目标位置,重新attach后不会有残留的动画
+            switch (getScrollOrientation()) {
+            case VERTICAL:
+            default:
+                scrollTo(0, (int) scrollValue);
+                break;
+            case HORIZONTAL:
+                scrollTo((int) scrollValue, 0);
+                break;
+            }
+            return;
+        }
         mValueAnimator = ValueAnimator.ofInt(oldScrollValue, (int) scrollValue);
         if (scrollValue == 0 && mDone) {
             mValueAnimator.setDuration(
@@ -1221,17 +2640,21 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
                     scrollTo((int) animation.getAnimatedValue(), 0);
                     break;
                 }
+                onAnimationFrameForDispatch();
             }
         });
         mValueAnimator.addListener(new AnimatorListenerAdapter() {
             @Override
             public void onAnimationEnd(Animator animation) {
                 super.onAnimationEnd(animation);
+                setFramePhaseActive(FramePhase.SETTLING, false);
+                onAnimationFrameForDispatch();
                 if (mState == State.RESET) {
                     mHeader.hide();
                 }
             }
         });
+        setFramePhaseActive(FramePhase.SETTLING, true);
         mValueAnimator.start();
     }
 
@@ -1347,7 +2770,7 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
                     setConsumed(dx, dy, consumed);
                     handleNestedScrollPull(mDirectionMove[0]);
                 } else {
-                    mCurLoadMode = isLoading() ? mCurLoadMode : null;
+                    mCurLoadMode = isPullLoading() ? mCurLoadMode : null;
                 }
             }
         } else if (offset > 0) {
@@ -1413,7 +2836,7 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
      * @param scrollValue 偏移量
      */
     private void handleNestedScrollPull(float scrollValue) {
-        if (!isUpdating() && !isLoading()) {
+        if (!isUpdating() && !isPullLoading()) {
             mNestedScrollOffset += Math.round(scrollValue / FRICTION);
         } else {
             mNestedScrollOffset += Math.round(scrollValue);
@@ -1440,6 +2863,107 @@ public abstract class PullToLoadBaseView<T extends ViewGroup> extends FrameLayou
         return super.getNestedScrollAxes();
     }
 
+    /**
+     * header或者footer放回pool之后的占位,记录大小和可见性,不参与布局
+     */
+    private static class DetachedLoadingLayout implements ILoadingLayout {
+        private final int mSize;
+        private final View mView;
+
+        DetachedLoadingLayout(Context context, ILoadingLayout released) {
+            mSize = released.getSize();
+            final View view = released.getLoadingView();
+            mView = new View(context);
+            // 复制一份,updateUI修改gravity时不能影响放回pool的视图
+            final ViewGroup.LayoutParams lp = view.getLayoutParams();
+            if (lp instanceof LayoutParams) {
+                // LayoutParams(LayoutParams)在API 19才加入
+                final LayoutParams copy = new LayoutParams((MarginLayoutParams) lp);
+                copy.gravity = ((LayoutParams) lp).gravity;
+                mView.setLayoutParams(copy);
+            } else if (lp != null) {
+                mView.setLayoutParams(new LayoutParams(lp));
+            }
+            mView.setVisibility(view.getVisibility());
+        }
+
+        @Override
+        public int getSize() {
+            return mSize;
+        }
+
+        @Override
+        public void onPull(State state, float distance) {
+
+        }
+
+        @Override
+        public void show() {
+            mView.setVisibility(VISIBLE);
+        }
+
+        @Override
+        public void hide() {
+            mView.setVisibility(INVISIBLE);
+        }
+
+        @Override
+        public View getLoadingView() {
+            return mView;
+        }
+    }
+
+    /**
+     * 保存加载状态,已加载页数和滚动位置
+     */
+    static class SavedState extends BaseSavedState {
+        State mState;
+        LoadMode mLoadMode;
+        boolean mIsAllLoaded;
+        int mPageCursor;
+        Parcelable mContentState;
+        Parcelable mPageState;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            mState = State.values()[in.readInt()];
+            mLoadMode = LoadMode.values()[in.readInt()];
+            mIsAllLoaded = in.readInt() != 0;
+            mPageCursor = in.readInt();
+            final ClassLoader classLoader = SavedState.class.getClassLoader();
+            mContentState = in.readParcelable(classLoader);
+            mPageState = in.readParcelable(classLoader);
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(mState.ordinal());
+            out.writeInt(mLoadMode.ordinal());
+            out.writeInt(mIsAllLoaded ? 1 : 0);
+            out.writeInt(mPageCursor);
+            out.writeParcelable(mContentState, flags);
+            out.writeParcelable(mPageState, flags);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR
+                = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
     private void Log(String msg) {
         if (DEBUG) {
             Log.i(TAG, msg);
@@ -0,0 +1,278 @@
+package com.droidworker.pulltoloadview;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+
+import com.droidworker.pulltoloadview.constant.LoadMode;
+import com.droidworker.pulltoloadview.constant.Orientation;
+
+/**
+ * {@link PullToLoadBaseView}的配置,对应xml中的属性.通过{@link Builder}创建后传给
+ * {@link PullToLoadBaseView#PullToLoadBaseView(Context, PullToLoadConfig)},不需要解析AttributeSet.
+ * 配置是不可变的,线程安全,可以在后台线程创建并在多个实例之间共享,但是视图必须在主线程创建
+ * @author https://github.com/DroidWorkerLYF
+ */
+public final class PullToLoadConfig {
+    static final int DEFAULT_ANIM_DURATION = 300;
+    /**
+     * 没有指定bar size,underBar时使用主题中的actionBarSize
+     */
+    static final int BAR_SIZE_UNSPECIFIED = -1;
+
+    private final LoadMode mMode;
+    private final boolean mIsUnderBar;
+    private final int mBarSize;
+    private final int mHeaderBgResId;
+    private final int mContentLayoutId;
+    private final int mHeaderLayoutId;
+    private final int mFooterLayoutId;
+    private final int mScrollTopDuration;
+    private final int mScrollBottomDuration;
+    private final LoadingLayoutFactory mHeaderFactory;
+    private final LoadingLayoutFactory mFooterFactory;
+    private final LoadingLayoutPool mLoadingLayoutPool;
+
+    private PullToLoadConfig(Builder builder) {
+        mMode = builder.mMode;
+        mIsUnderBar = builder.mIsUnderBar;
+        mBarSize = builder.mBarSize;
+        mHeaderBgResId = builder.mHeaderBgResId;
+        mContentLayoutId = builder.mContentLayoutId;
+        mHeaderLayoutId = builder.mHeaderLayoutId;
+        mFooterLayoutId = builder.mFooterLayoutId;
+        mScrollTopDuration = builder.mScrollTopDuration;
+        mScrollBottomDuration = builder.mScrollBottomDuration;
+        mHeaderFactory = builder.mHeaderFactory;
+        mFooterFactory = builder.mFooterFactory;
+        mLoadingLayoutPool = builder.mLoadingLayoutPool;
+    }
+
+    /**
+     * 从xml属性中读取配置
+     * @param context context
+     * @param attrs xml属性
+     * @return 配置
+     */
+    static PullToLoadConfig fromAttributes(Context context, AttributeSet attrs) {
+        final TypedArray typedArray = context.obtainStyledAttributes(attrs,
+                R.styleable.PullToLoadView);
+        try {
+            return new Builder()
+                    .setUnderBar(typedArray.getBoolean(R.styleable.PullToLoadView_underBar, false))
+                    .setContentLayoutId(typedArray
+                            .getResourceId(R.styleable.PullToLoadView_content_view_id, 0))
+                    .setHeaderLayoutId(typedArray
+                            .getResourceId(R.styleable.PullToLoadView_header_view_id, 0))
+                    .setFooterLayoutId(typedArray
+                            .getResourceId(R.styleable.PullToLoadView_footer_view_id, 0))
+                    .setBarSize(typedArray.getDimensionPixelSize(
+                            R.styleable.PullToLoadView_bar_size, BAR_SIZE_UNSPECIFIED))
+                    .setHeaderBackground(typedArray.getResourceId(
+                            R.styleable.PullToLoadView_underbar_header_background, 0))
+                    .setScrollToTopDuration(typedArray.getInt(
+                            R.styleable.PullToLoadView_scroll_to_top_duration,
+                            DEFAULT_ANIM_DURATION))
+                    .setScrollToBottomDuration(typedArray.getInt(
+                            R.styleable.PullToLoadView_scroll_to_bottom_duration,
+                            DEFAULT_ANIM_DURATION))
+                    .build();
+        } finally {
+            typedArray.recycle();
+        }
+    }
+
+    /**
+     * @return 加载模式,null则使用各个实现的默认值
+     */
+    public LoadMode getMode() {
+        return mMode;
+    }
+
+    public boolean isUnderBar() {
+        return mIsUnderBar;
+    }
+
+    /**
+     * @return bar的大小,{@link #BAR_SIZE_UNSPECIFIED}表示使用主题中的actionBarSize
+     */
+    public int getBarSize() {
+        return mBarSize;
+    }
+
+    public int getHeaderBgResId() {
+        return mHeaderBgResId;
+    }
+
+    public int getContentLayoutId() {
+        return mContentLayoutId;
+    }
+
+    public int getHeaderLayoutId() {
+        return mHeaderLayoutId;
+    }
+
+    public int getFooterLayoutId() {
+        return mFooterLayoutId;
+    }
+
+    public int getScrollTopDuration() {
+        return mScrollTopDuration;
+    }
+
+    public int getScrollBottomDuration() {
+        return mScrollBottomDuration;
+    }
+
+    public LoadingLayoutFactory getHeaderFactory() {
+        return mHeaderFactory;
+    }
+
+    public LoadingLayoutFactory getFooterFactory() {
+        return mFooterFactory;
+    }
+
+    public LoadingLayoutPool getLoadingLayoutPool() {
+        return mLoadingLayoutPool;
+    }
+
+    /**
+     * 创建header或者footer,优先于layout id
+     */
+    public interface LoadingLayoutFactory {
+        /**
+         * @param context context
+         * @param orientation 滚动方向
+         * @return header或者footer
+         */
+        ILoadingLayout create(Context context, Orientation orientation);
+    }
+
+    public static final class Builder {
+        private LoadMode mMode;
+        private boolean mIsUnderBar;
+        private int mBarSize = BAR_SIZE_UNSPECIFIED;
+        private int mHeaderBgResId;
+        private int mContentLayoutId;
+        private int mHeaderLayoutId;
+        private int mFooterLayoutId;
+        private int mScrollTopDuration = DEFAULT_ANIM_DURATION;
+        private int mScrollBottomDuration = DEFAULT_ANIM_DURATION;
+        private LoadingLayoutFactory mHeaderFactory;
+        private LoadingLayoutFactory mFooterFactory;
+        private LoadingLayoutPool mLoadingLayoutPool;
+
+        public Builder() {
+
+        }
+
+        /**
+         * @param config 以此配置为基础
+         */
+        public Builder(PullToLoadConfig config) {
+            mMode = config.mMode;
+            mIsUnderBar = config.mIsUnderBar;
+            mBarSize = config.mBarSize;
+            mHeaderBgResId = config.mHeaderBgResId;
+            mContentLayoutId = config.mContentLayoutId;
+            mHeaderLayoutId = config.mHeaderLayoutId;
+            mFooterLayoutId = config.mFooterLayoutId;
+            mScrollTopDuration = config.mScrollTopDuration;
+            mScrollBottomDuration = config.mScrollBottomDuration;
+            mHeaderFactory = config.mHeaderFactory;
+            mFooterFactory = config.mFooterFactory;
+            mLoadingLayoutPool = config.mLoadingLayoutPool;
+        }
+
+        public Builder setMode(LoadMode mode) {
+            mMode = mode;
+            return this;
+        }
+
+        /**
+         * @param isUnderBar 是否在Z轴上位于Toolbar或者自定义的导航栏下方
+         */
+        public Builder setUnderBar(boolean isUnderBar) {
+            mIsUnderBar = isUnderBar;
+            return this;
+        }
+
+        /**
+         * @param barSize bar的大小,单位px.垂直方向不设置时使用主题中的actionBarSize
+         */
+        public Builder setBarSize(int barSize) {
+            mBarSize = barSize;
+            return this;
+        }
+
+        /**
+         * @param headerBgResId underBar时header的背景
+         */
+        public Builder setHeaderBackground(int headerBgResId) {
+            mHeaderBgResId = headerBgResId;
+            return this;
+        }
+
+        /**
+         * @param contentLayoutId 用来inflate内容视图的layout id
+         */
+        public Builder setContentLayoutId(int contentLayoutId) {
+            mContentLayoutId = contentLayoutId;
+            return this;
+        }
+
+        /**
+         * @param headerLayoutId 用来inflate header的layout id,根视图需要实现{@link ILoadingLayout}
+         */
+        public Builder setHeaderLayoutId(int headerLayoutId) {
+            mHeaderLayoutId = headerLayoutId;
+            return this;
+        }
+
+        /**
+         * @param footerLayoutId 用来inflate footer的layout id,根视图需要实现{@link ILoadingLayout}
+         */
+        public Builder setFooterLayoutId(int footerLayoutId) {
+            mFooterLayoutId = footerLayoutId;
+            return this;
+        }
+
+        /**
+         * @param duration State为reset时,滑动到top动画时间
+         */
+        public Builder setScrollToTopDuration(int duration) {
+            mScrollTopDuration = duration;
+            return this;
+        }
+
+        /**
+         * @param duration State为reset时,滑动到bottom动画时间
+         */
+        public Builder setScrollToBottomDuration(int duration) {
+            mScrollBottomDuration = duration;
+            return this;
+        }
+
+        public Builder setHeaderFactory(LoadingLayoutFactory headerFactory) {
+            mHeaderFactory = headerFactory;
+            return this;
+        }
+
+        public Builder setFooterFactory(LoadingLayoutFactory footerFactory) {
+            mFooterFactory = footerFactory;
+            return this;
+        }
+
+        /**
+         * @param loadingLayoutPool 共享header和footer的pool,不设置时从Context中查找
+         */
+        public Builder setLoadingLayoutPool(LoadingLayoutPool loadingLayoutPool) {
+            mLoadingLayoutPool = loadingLayoutPool;
+            return this;
+        }
+
+        public PullToLoadConfig build() {
+            return new PullToLoadConfig(this);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.droidworker.pulltoloadview;
+
+/**
+ * 加载更新的策略,限制加载更新的频率,并且可以在数据过期后自动加载更新.
+ * 通过{@link PullToLoadBaseView#setRefreshPolicy(RefreshPolicy)}设置,时间单位都是毫秒
+ * @author https://github.com/DroidWorkerLYF
+ */
+public class RefreshPolicy {
+    /**
+     * 距离上次加载更新的最短间隔,间隔内的加载更新不会回调{@link PullToLoadListener#onLoadNew()}
+     */
+    private final long mMinRefreshInterval;
+    /**
+     * 数据的有效期,超过则认为过期,0表示不会过期
+     */
+    private final long mTtl;
+    /**
+     * 数据过期时,在attach或者重新可见时是否自动加载更新
+     */
+    private boolean mIsAutoRefreshWhenStale;
+
+    /**
+     * @param minRefreshInterval 两次加载更新的最短间隔
+     * @param ttl 数据的有效期,0表示不会过期
+     */
+    public RefreshPolicy(long minRefreshInterval, long ttl) {
+        mMinRefreshInterval = Math.max(minRefreshInterval, 0);
+        mTtl = Math.max(ttl, 0);
+    }
+
+    /**
+     * 设置数据过期时是否自动加载更新
+     * @param isAutoRefreshWhenStale true则在attach或者重新可见时自动加载更新
+     */
+    public void setAutoRefreshWhenStale(boolean isAutoRefreshWhenStale) {
+        mIsAutoRefreshWhenStale = isAutoRefreshWhenStale;
+    }
+
+    public boolean isAutoRefreshWhenStale() {
+        return mIsAutoRefreshWhenStale;
+    }
+
+    public long getMinRefreshInterval() {
+        return mMinRefreshInterval;
+    }
+
+    public long getTtl() {
+        return mTtl;
+    }
+
+    /**
+     * @param lastRefreshTime 上次加载更新完成的时间,0表示还没有加载过
+     * @param now 当前时间
+     * @return true则表示距离上次加载更新太近,不需要再次请求
+     */
+    public boolean isThrottled(long lastRefreshTime, long now) {
+        return lastRefreshTime > 0 && now - lastRefreshTime < mMinRefreshInterval;
+    }
+
+    /**
+     * @param lastRefreshTime 上次加载更新完成的时间,0表示还没有加载过
+     * @param now 当前时间
+     * @return true则表示数据已经过期
+     */
+    public boolean isStale(long lastRefreshTime, long now) {
+        return lastRefreshTime > 0 && mTtl > 0 && now - lastRefreshTime >= mTtl;
+    }
+}
@@ -0,0 +1,28 @@
+package com.droidworker.pulltoloadview;
+
+/**
+ * 预加载的回调.拉动超过释放的阈值时就开始加载,而不是等到松手,用户按住不放的时间就不再是等待时间.
+ * 松手后通过{@link #onPrefetchCommit(LoadToken)}确认使用预加载的结果,此时不会再回调
+ * {@link PullToLoadListener#onLoadNew()}或{@link PullToLoadListener#onLoadMore()},
+ * 结果返回后仍然需要调用{@link IPullToLoad#onLoadComplete()}
+ * @author https://github.com/DroidWorkerLYF
+ */
+public interface SpeculativeLoadListener {
+    /**
+     * 拉动超过了释放的阈值,开始预加载,结果需要保留到{@link #onPrefetchCommit(LoadToken)}
+     * @param token 本次预加载的凭证
+     */
+    void onPrefetch(LoadToken token);
+
+    /**
+     * 用户松手,确认使用预加载的结果
+     * @param token 本次预加载的凭证
+     */
+    void onPrefetchCommit(LoadToken token);
+
+    /**
+     * 拉回到阈值以下并且超过了保留时间,或者开始了新的预加载,预加载的结果应该被丢弃
+     * @param token 本次预加载的凭证
+     */
+    void onPrefetchCancel(LoadToken token);
+}
@@ -0,0 +1,23 @@
+package com.droidworker.pulltoloadview.constant;
+
+/**
+ * 加载更新和自动加载更多是否可以同时进行,以及同时进行时如何处理加载更多的结果
+ * @author https://github.com/DroidWorkerLYF
+ */
+public enum ConcurrentLoadPolicy {
+    /**
+     * 默认,不同时进行.自动加载更多进行中时开始的加载更新,等加载更多结束后才回调;加载更新进行中时不会开始加载更多.
+     * 任何时候只有一个加载在进行中,{@link com.droidworker.pulltoloadview.IPullToLoad#onLoadComplete()}
+     * 结束的就是它
+     */
+    SEQUENTIAL,
+    /**
+     * 同时进行,加载更新立即回调.加载更新提交后丢弃加载更多的结果,加载更新替换了列表,之前的下一页已经过期.
+     * 加载更新进行中时不会开始加载更多
+     */
+    DISCARD_LOAD_MORE,
+    /**
+     * 同时进行,加载更多的结果仍然会追加到列表中,加载更新进行中时也可以开始加载更多
+     */
+    KEEP_LOAD_MORE
+}
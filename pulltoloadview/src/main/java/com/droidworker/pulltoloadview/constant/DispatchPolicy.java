@@ -0,0 +1,20 @@
+package com.droidworker.pulltoloadview.constant;
+
+/**
+ * {@link com.droidworker.pulltoloadview.PullToLoadListener}回调的时机
+ * @author https://github.com/DroidWorkerLYF
+ */
+public enum DispatchPolicy {
+    /**
+     * 立即回调,在touch事件或者滚动监听中执行
+     */
+    IMMEDIATE,
+    /**
+     * 下一帧回调
+     */
+    NEXT_FRAME,
+    /**
+     * 回弹动画的第一帧之后回调,没有动画时等同于{@link #NEXT_FRAME}
+     */
+    AFTER_ANIMATION_START
+}
@@ -0,0 +1,24 @@
+package com.droidworker.pulltoloadview.constant;
+
+/**
+ * 统计帧耗时的阶段,同一帧可能同时属于多个阶段,例如加载更新时header滚动到位的过程
+ * @author https://github.com/DroidWorkerLYF
+ */
+public enum FramePhase {
+    /**
+     * 手指拉动header或者footer
+     */
+    DRAGGING,
+    /**
+     * 松手后header或者footer滚动到位或者复位的动画
+     */
+    SETTLING,
+    /**
+     * 加载中,header,footer或者自动加载更多的footer在播放加载动画
+     */
+    LOADING,
+    /**
+     * 自动加载更多的结果提交后的几帧,新的一页数据在这期间布局和绘制
+     */
+    AUTO_LOAD_COMMIT
+}
@@ -40,5 +40,9 @@ public enum State {
     /**
      * 回弹
      */
-    OVER_SCROLL
+    OVER_SCROLL,
+    /**
+     * 刚刚更新过,加载更新被限制,没有重新请求,只用于header的显示
+     */
+    JUST_UPDATED
 }
@@ -41,6 +41,14 @@ public class LoadingLayout extends FrameLayout implements ILoadingLayout {
      * 旋转动画
      */
     private RotateAnimation mRotateAnimation;
+    /**
+     * 是否处于需要播放旋转动画的加载状态
+     */
+    private boolean mIsAnimating;
+    /**
+     * 是否暂停动画,例如所在的页面对用户不可见
+     */
+    private boolean mIsPaused;
 
     public LoadingLayout(Context context) {
         this(context, Orientation.VERTICAL);
@@ -88,18 +96,26 @@ public class LoadingLayout extends FrameLayout implements ILoadingLayout {
     public void onPull(State state, float distance) {
         if (state == State.UPDATING || state == State.MANUAL_UPDATE) {
             //加载更新或者自动更新状态
-            mImageView.startAnimation(mRotateAnimation);
+            mIsAnimating = true;
+            updateAnimation();
             mTextView.setText(R.string.updating);
         } else if (state == State.LOADING) {
             //加载更多状态
-            mImageView.startAnimation(mRotateAnimation);
+            mIsAnimating = true;
+            updateAnimation();
             mTextView.setText(R.string.loading);
+        } else if (state == State.JUST_UPDATED) {
+            //加载更新被限制,没有重新请求
+            mIsAnimating = false;
+            updateAnimation();
+            mTextView.setText(R.string.just_updated);
         } else if (state == State.RESET) {
             //reset,停止动画
             if(distance != 0){
                 mTextView.setText(R.string.done);
             }
-            mImageView.clearAnimation();
+            mIsAnimating = false;
+            updateAnimation();
         } else {
             if (state == State.PULL_FROM_START) {
                 //下拉
@@ -120,6 +136,43 @@ public class LoadingLayout extends FrameLayout implements ILoadingLayout {
         }
     }
 
+    /**
+     * 暂停或者恢复加载中的旋转动画,不可见时动画会自动停止,可见后恢复
+     * @param isPaused true则暂停
+     */
+    public void setPaused(boolean isPaused) {
+        mIsPaused = isPaused;
+        updateAnimation();
+    }
+
+    /**
+     * 只在加载状态并且对用户可见时播放动画.INVISIBLE的view设置了动画仍然会每帧绘制
+     */
+    private void updateAnimation() {
+        if (mImageView == null) {
+            return;
+        }
+        if (mIsAnimating && !mIsPaused && isShown() && getWindowVisibility() == VISIBLE) {
+            if (mImageView.getAnimation() == null) {
+                mImageView.startAnimation(mRotateAnimation);
+            }
+        } else {
+            mImageView.clearAnimation();
+        }
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateAnimation();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateAnimation();
+    }
+
     @Override
     public void show() {
         setVisibility(VISIBLE);
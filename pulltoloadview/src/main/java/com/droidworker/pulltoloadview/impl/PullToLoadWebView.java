@@ -1,6 +1,7 @@
 package com.droidworker.pulltoloadview.impl;
 
 import com.droidworker.pulltoloadview.PullToLoadBaseView;
+import com.droidworker.pulltoloadview.PullToLoadConfig;
 import com.droidworker.pulltoloadview.constant.Direction;
 import com.droidworker.pulltoloadview.constant.LoadMode;
 import com.droidworker.pulltoloadview.constant.Orientation;
@@ -27,6 +28,14 @@ public class PullToLoadWebView extends PullToLoadBaseView<WebView> {
         setMode(LoadMode.START);
     }
 
+    public PullToLoadWebView(Context context, PullToLoadConfig config) {
+        super(context, config);
+
+        if (config.getMode() == null) {
+            setMode(LoadMode.START);
+        }
+    }
+
     @Override
     public boolean canScrollVertical(Direction direction) {
         switch (direction) {
@@ -0,0 +1,218 @@
+package com.droidworker.pulltoloadview.impl.recyclerview;
+
+import com.droidworker.pulltoloadview.R;
+import com.droidworker.pulltoloadview.constant.Orientation;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.view.View;
+
+/**
+ * 用ItemDecoration绘制的自动加载更多的footer,在最后一行之后留出空间并在{@link #onDrawOver}中绘制加载进度,
+ * 不占用adapter的位置,也不需要额外的视图.加载中只重绘自己所在的区域.
+ * Grid中最后一行的每个item都会留出相同的空间,不会被拉伸;StaggeredGrid中无法确定最后一行,不支持,
+ * 不会留出空间也不会绘制,应该使用{@link #isSupported(RecyclerView.LayoutManager)}判断
+ * @author https://github.com/DroidWorkerLYF
+ */
+public class AutoLoadFooterDecoration extends RecyclerView.ItemDecoration {
+    /**
+     * 旋转一圈的时间,和{@link com.droidworker.pulltoloadview.impl.LoadingLayout}的速度一致
+     */
+    private static final int ROTATE_DURATION = 500;
+    private final Orientation mOrientation;
+    private final Drawable mIndicator;
+    /**
+     * 在最后一个item之后留出的大小
+     */
+    private final int mSize;
+    private final Rect mBounds = new Rect();
+    /**
+     * 是否显示,全部加载完毕后不显示也不占用空间
+     */
+    private boolean mIsEnabled = true;
+    private boolean mIsLoading;
+    private long mLoadingStartTime;
+
+    public AutoLoadFooterDecoration(Context context, Orientation orientation) {
+        mOrientation = orientation;
+        mSize = context.getResources().getDimensionPixelSize(R.dimen.auto_load_footer_size);
+        final int indicatorSize = context.getResources()
+                .getDimensionPixelSize(R.dimen.rotate_arrow_size);
+        mIndicator = ContextCompat.getDrawable(context, R.drawable.default_rotate);
+        mIndicator.setBounds(0, 0, indicatorSize, indicatorSize);
+    }
+
+    public boolean isEnabled() {
+        return mIsEnabled;
+    }
+
+    /**
+     * 设置是否显示,会重新布局以增加或者移除留出的空间
+     * @param recyclerView 所在的RecyclerView
+     * @param isEnabled 是否显示
+     */
+    public void setEnabled(RecyclerView recyclerView, boolean isEnabled) {
+        if (mIsEnabled == isEnabled) {
+            return;
+        }
+        mIsEnabled = isEnabled;
+        recyclerView.invalidateItemDecorations();
+    }
+
+    /**
+     * 设置是否处于加载状态,加载中旋转进度
+     * @param recyclerView 所在的RecyclerView
+     * @param isLoading 是否加载中
+     */
+    public void setLoading(RecyclerView recyclerView, boolean isLoading) {
+        if (mIsLoading == isLoading) {
+            return;
+        }
+        mIsLoading = isLoading;
+        mLoadingStartTime = SystemClock.uptimeMillis();
+        invalidateBounds(recyclerView);
+    }
+
+    /**
+     * @return 留出的空间的大小,没有显示时为0
+     */
+    public int getSize() {
+        return mIsEnabled ? mSize : 0;
+    }
+
+    /**
+     * @param layoutManager LayoutManager
+     * @return 是否支持这种LayoutManager,StaggeredGrid不支持
+     */
+    public static boolean isSupported(RecyclerView.LayoutManager layoutManager) {
+        return !(layoutManager instanceof StaggeredGridLayoutManager);
+    }
+
+    @Override
+    public void getItemOffsets(Rect outRect, View view, RecyclerView parent,
+            RecyclerView.State state) {
+        outRect.setEmpty();
+        if (!mIsEnabled || !isInLastLine(parent, view, state)) {
+            return;
+        }
+        switch (mOrientation) {
+        case VERTICAL:
+        default:
+            outRect.bottom = mSize;
+            break;
+        case HORIZONTAL:
+            outRect.right = mSize;
+            break;
+        }
+    }
+
+    @Override
+    public void onDrawOver(Canvas c, RecyclerView parent, RecyclerView.State state) {
+        if (!mIsEnabled || !updateBounds(parent, state)) {
+            return;
+        }
+        final int save = c.save();
+        c.translate(mBounds.centerX() - mIndicator.getBounds().width() / 2,
+                mBounds.centerY() - mIndicator.getBounds().height() / 2);
+        if (mIsLoading) {
+            final long elapsed = (SystemClock.uptimeMillis() - mLoadingStartTime)
+                    % ROTATE_DURATION;
+            c.rotate(360f * elapsed / ROTATE_DURATION, mIndicator.getBounds().width() / 2f,
+                    mIndicator.getBounds().height() / 2f);
+        }
+        mIndicator.draw(c);
+        c.restoreToCount(save);
+        if (mIsLoading) {
+            invalidateBounds(parent);
+        }
+    }
+
+    private void invalidateBounds(RecyclerView recyclerView) {
+        if (mBounds.isEmpty()) {
+            recyclerView.invalidate();
+        } else {
+            ViewCompat.postInvalidateOnAnimation(recyclerView, mBounds.left, mBounds.top,
+                    mBounds.right, mBounds.bottom);
+        }
+    }
+
+    /**
+     * 根据最后一行中最靠后的item计算留出的空间的位置
+     * @return 最后一行不可见时返回false
+     */
+    private boolean updateBounds(RecyclerView parent, RecyclerView.State state) {
+        mBounds.setEmpty();
+        final RecyclerView.LayoutManager layoutManager = parent.getLayoutManager();
+        if (layoutManager == null) {
+            return false;
+        }
+        int end = Integer.MIN_VALUE;
+        for (int i = parent.getChildCount() - 1; i >= 0; i--) {
+            final View child = parent.getChildAt(i);
+            if (!isInLastLine(parent, child, state)) {
+                continue;
+            }
+            switch (mOrientation) {
+            case VERTICAL:
+            default:
+                end = Math.max(end, layoutManager.getDecoratedBottom(child)
+                        + Math.round(ViewCompat.getTranslationY(child)));
+                break;
+            case HORIZONTAL:
+                end = Math.max(end, layoutManager.getDecoratedRight(child)
+                        + Math.round(ViewCompat.getTranslationX(child)));
+                break;
+            }
+        }
+        if (end == Integer.MIN_VALUE) {
+            return false;
+        }
+        switch (mOrientation) {
+        case VERTICAL:
+        default:
+            mBounds.set(parent.getPaddingLeft(), end - mSize,
+                    parent.getWidth() - parent.getPaddingRight(), end);
+            break;
+        case HORIZONTAL:
+            mBounds.set(end - mSize, parent.getPaddingTop(), end,
+                    parent.getHeight() - parent.getPaddingBottom());
+            break;
+        }
+        return true;
+    }
+
+    /**
+     * @return 是否在最后一行,Grid中和最后一个item在同一个span group的都算,其他只有最后一个item
+     */
+    private boolean isInLastLine(RecyclerView parent, View view, RecyclerView.State state) {
+        final int position = parent.getChildAdapterPosition(view);
+        final int lastPosition = state.getItemCount() - 1;
+        if (position == RecyclerView.NO_POSITION || lastPosition < 0) {
+            return false;
+        }
+        final RecyclerView.LayoutManager layoutManager = parent.getLayoutManager();
+        if (!isSupported(layoutManager)) {
+            return false;
+        }
+        if (layoutManager instanceof GridLayoutManager) {
+            final GridLayoutManager gridLayoutManager = (GridLayoutManager) layoutManager;
+            final int spanCount = gridLayoutManager.getSpanCount();
+            // 一行最多spanCount个item,更早的不需要计算span group
+            if (position <= lastPosition - spanCount) {
+                return false;
+            }
+            final GridLayoutManager.SpanSizeLookup lookup = gridLayoutManager.getSpanSizeLookup();
+            return lookup.getSpanGroupIndex(position, spanCount)
+                    == lookup.getSpanGroupIndex(lastPosition, spanCount);
+        }
+        return position == lastPosition;
+    }
+}
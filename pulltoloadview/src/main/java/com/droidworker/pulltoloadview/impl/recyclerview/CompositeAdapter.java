@@ -0,0 +1,512 @@
+package com.droidworker.pulltoloadview.impl.recyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 将多个Adapter和单个视图按顺序连接成一个Adapter,例如分段的列表.
+ * 每一段的数据变化会加上这一段的偏移量后转发,不需要全部刷新;position到段的查找是O(log 段数)的二分查找.
+ * 每一段的view type会映射为全局唯一的view type,所有生命周期回调,payload和stable id都会转发给对应的段.
+ * stable id的高8位是段的序号,所以同时最多有{@link #MAX_SECTION_COUNT}段,移除的段的序号会被复用;
+ * 需要在设置到RecyclerView之前调用{@link #setHasStableIds(boolean)},并且每一段都应该有stable id.
+ * 同一个Adapter只能添加一次.移除的段在它的ViewHolder都被回收后才释放view type的映射.
+ * 注意段中的{@link RecyclerView.ViewHolder#getAdapterPosition()}返回的是全局的位置,
+ * 可以通过{@link #getLocalPosition(int)}转换
+ * @author https://github.com/DroidWorkerLYF
+ */
+public class CompositeAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+    public static final int MAX_SECTION_COUNT = 256;
+    private static final int SECTION_ID_SHIFT = 56;
+    private static final long LOCAL_ID_MASK = (1L << SECTION_ID_SHIFT) - 1;
+    private final List<Section> mSections = new ArrayList<>();
+    /**
+     * Adapter对应的段
+     */
+    private final Map<RecyclerView.Adapter, Section> mAdapterSections = new HashMap<>();
+    /**
+     * 正在使用的段的序号
+     */
+    private final BitSet mUsedSectionIds = new BitSet(MAX_SECTION_COUNT);
+    /**
+     * 全局view type对应的段
+     */
+    private final SparseArray<Section> mViewTypeSections = new SparseArray<>();
+    /**
+     * 全局view type对应的段内view type
+     */
+    private final SparseIntArray mLocalViewTypes = new SparseIntArray();
+    /**
+     * 已经移除但还有ViewHolder没有回收的段
+     */
+    private final List<Section> mRemovedSections = new ArrayList<>();
+    private final List<RecyclerView> mRecyclerViews = new ArrayList<>(1);
+    /**
+     * 每一段第一个item的全局位置,段的数量变化后延迟重新计算
+     */
+    private int[] mOffsets = new int[0];
+    private int mItemCount;
+    private boolean mIsOffsetsDirty;
+    private int mNextViewType;
+
+    /**
+     * 在末尾添加一段
+     * @param adapter 段的Adapter
+     */
+    public void addAdapter(RecyclerView.Adapter adapter) {
+        addAdapter(mSections.size(), adapter);
+    }
+
+    /**
+     * 在指定位置添加一段
+     * @param index 段的序号
+     * @param adapter 段的Adapter
+     */
+    public void addAdapter(int index, RecyclerView.Adapter adapter) {
+        if (mAdapterSections.containsKey(adapter)) {
+            throw new IllegalArgumentException("adapter already added");
+        }
+        final int sectionId = mUsedSectionIds.nextClearBit(0);
+        if (sectionId >= MAX_SECTION_COUNT) {
+            throw new IllegalStateException("at most " + MAX_SECTION_COUNT + " sections");
+        }
+        mUsedSectionIds.set(sectionId);
+        final Section section = new Section(adapter, sectionId);
+        mSections.add(index, section);
+        mAdapterSections.put(adapter, section);
+        mIsOffsetsDirty = true;
+        adapter.registerAdapterDataObserver(section.mObserver);
+        for (RecyclerView recyclerView : mRecyclerViews) {
+            adapter.onAttachedToRecyclerView(recyclerView);
+        }
+        final int itemCount = adapter.getItemCount();
+        if (itemCount > 0) {
+            notifyItemRangeInserted(getSectionOffset(section), itemCount);
+        }
+    }
+
+    /**
+     * 在末尾添加只有一个视图的段,例如header或者footer
+     * @param view 视图
+     */
+    public void addView(View view) {
+        addAdapter(new SingleViewAdapter(view));
+    }
+
+    /**
+     * 在指定位置添加只有一个视图的段
+     * @param index 段的序号
+     * @param view 视图
+     */
+    public void addView(int index, View view) {
+        addAdapter(index, new SingleViewAdapter(view));
+    }
+
+    /**
+     * 移除一段
+     * @param adapter 段的Adapter
+     */
+    public void removeAdapter(RecyclerView.Adapter adapter) {
+        final Section section = mAdapterSections.get(adapter);
+        if (section != null) {
+            removeSection(section);
+        }
+    }
+
+    /**
+     * 移除只有一个视图的段
+     * @param view 视图
+     */
+    public void removeView(View view) {
+        for (int i = 0; i < mSections.size(); i++) {
+            final RecyclerView.Adapter adapter = mSections.get(i).mAdapter;
+            if (adapter instanceof SingleViewAdapter && ((SingleViewAdapter) adapter).mView == view) {
+                removeSection(mSections.get(i));
+                return;
+            }
+        }
+    }
+
+    private void removeSection(Section section) {
+        final int offset = getSectionOffset(section);
+        final int itemCount = section.mItemCount;
+        mSections.remove(section.mIndex);
+        mAdapterSections.remove(section.mAdapter);
+        mUsedSectionIds.clear(section.mId);
+        mIsOffsetsDirty = true;
+        section.mAdapter.unregisterAdapterDataObserver(section.mObserver);
+        for (RecyclerView recyclerView : mRecyclerViews) {
+            section.mAdapter.onDetachedFromRecyclerView(recyclerView);
+        }
+        // 缓存池中的ViewHolder不会再被使用,直接丢弃,之后回收的也不再放入缓存池
+        for (RecyclerView recyclerView : mRecyclerViews) {
+            final RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+            for (int i = 0; i < section.mViewTypes.size(); i++) {
+                pool.setMaxRecycledViews(section.mViewTypes.valueAt(i), 0);
+            }
+        }
+        // 列表中可能还有这一段的ViewHolder在执行移除动画,回收之前保留view type的映射
+        if (section.mActiveHolders.isEmpty() || mRecyclerViews.isEmpty()) {
+            releaseViewTypes(section);
+        } else {
+            mRemovedSections.add(section);
+        }
+        if (itemCount > 0) {
+            notifyItemRangeRemoved(offset, itemCount);
+        }
+    }
+
+    /**
+     * 释放移除的段的view type映射,不再持有它的Adapter
+     * @param section 移除的段
+     */
+    private void releaseViewTypes(Section section) {
+        for (int i = 0; i < section.mViewTypes.size(); i++) {
+            final int viewType = section.mViewTypes.valueAt(i);
+            mViewTypeSections.remove(viewType);
+            mLocalViewTypes.delete(viewType);
+        }
+        section.mViewTypes.clear();
+        section.mActiveHolders.clear();
+        mRemovedSections.remove(section);
+    }
+
+    /**
+     * ViewHolder不会再被使用,移除的段的最后一个ViewHolder回收后释放它的view type映射
+     * @param section ViewHolder所在的段
+     * @param holder 回收或者丢弃的ViewHolder
+     */
+    private void onHolderReleased(Section section, RecyclerView.ViewHolder holder) {
+        if (section.mActiveHolders.remove(holder) && section.mActiveHolders.isEmpty()
+                && mRemovedSections.contains(section)) {
+            releaseViewTypes(section);
+        }
+    }
+
+    public int getSectionCount() {
+        return mSections.size();
+    }
+
+    public RecyclerView.Adapter getAdapter(int sectionIndex) {
+        return mSections.get(sectionIndex).mAdapter;
+    }
+
+    /**
+     * @param position 全局位置
+     * @return 所在段的序号
+     */
+    public int getSectionIndex(int position) {
+        ensureOffsets();
+        if (position < 0 || position >= mItemCount) {
+            throw new IndexOutOfBoundsException("position " + position + ", count " + mItemCount);
+        }
+        // 最后一个起始位置小于等于position的段,空的段和下一段起始位置相同,会被跳过
+        int low = 0;
+        int high = mOffsets.length - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (mOffsets[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param position 全局位置
+     * @return 在所在段中的位置
+     */
+    public int getLocalPosition(int position) {
+        return position - mOffsets[getSectionIndex(position)];
+    }
+
+    /**
+     * @param adapter 段的Adapter
+     * @param localPosition 段中的位置
+     * @return 全局位置,没有这一段则返回{@link RecyclerView#NO_POSITION}
+     */
+    public int getGlobalPosition(RecyclerView.Adapter adapter, int localPosition) {
+        final Section section = mAdapterSections.get(adapter);
+        if (section == null) {
+            return RecyclerView.NO_POSITION;
+        }
+        return getSectionOffset(section) + localPosition;
+    }
+
+    private int getSectionOffset(Section section) {
+        ensureOffsets();
+        return mOffsets[section.mIndex];
+    }
+
+    private void ensureOffsets() {
+        if (!mIsOffsetsDirty && mOffsets.length == mSections.size()) {
+            return;
+        }
+        final int size = mSections.size();
+        if (mOffsets.length != size) {
+            mOffsets = new int[size];
+        }
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            final Section section = mSections.get(i);
+            section.mIndex = i;
+            mOffsets[i] = offset;
+            section.mItemCount = section.mAdapter.getItemCount();
+            offset += section.mItemCount;
+        }
+        mItemCount = offset;
+        mIsOffsetsDirty = false;
+    }
+
+    private Section getSection(int position) {
+        return mSections.get(getSectionIndex(position));
+    }
+
+    private Section getSection(RecyclerView.ViewHolder holder) {
+        return mViewTypeSections.get(holder.getItemViewType());
+    }
+
+    @Override
+    public int getItemCount() {
+        ensureOffsets();
+        return mItemCount;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        final int index = getSectionIndex(position);
+        final Section section = mSections.get(index);
+        final int localViewType = section.mAdapter.getItemViewType(position - mOffsets[index]);
+        int viewType = section.mViewTypes.get(localViewType, -1);
+        if (viewType == -1) {
+            viewType = mNextViewType++;
+            section.mViewTypes.put(localViewType, viewType);
+            mViewTypeSections.put(viewType, section);
+            mLocalViewTypes.put(viewType, localViewType);
+        }
+        return viewType;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        final int index = getSectionIndex(position);
+        final Section section = mSections.get(index);
+        final long localId = section.mAdapter.getItemId(position - mOffsets[index]);
+        if (localId == RecyclerView.NO_ID) {
+            return RecyclerView.NO_ID;
+        }
+        return ((long) section.mId << SECTION_ID_SHIFT) | (localId & LOCAL_ID_MASK);
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        return mViewTypeSections.get(viewType).mAdapter.onCreateViewHolder(parent,
+                mLocalViewTypes.get(viewType));
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        final int index = getSectionIndex(position);
+        final Section section = mSections.get(index);
+        section.mActiveHolders.add(holder);
+        // noinspection unchecked
+        section.mAdapter.onBindViewHolder(holder, position - mOffsets[index]);
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position,
+            List<Object> payloads) {
+        final int index = getSectionIndex(position);
+        final Section section = mSections.get(index);
+        section.mActiveHolders.add(holder);
+        // noinspection unchecked
+        section.mAdapter.onBindViewHolder(holder, position - mOffsets[index], payloads);
+    }
+
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        final Section section = getSection(holder);
+        if (section != null) {
+            // noinspection unchecked
+            section.mAdapter.onViewRecycled(holder);
+            onHolderReleased(section, holder);
+        }
+    }
+
+    @Override
+    public boolean onFailedToRecycleView(RecyclerView.ViewHolder holder) {
+        final Section section = getSection(holder);
+        if (section == null) {
+            return false;
+        }
+        // noinspection unchecked
+        final boolean recycle = section.mAdapter.onFailedToRecycleView(holder);
+        if (!recycle) {
+            // 不回收的ViewHolder会被丢弃
+            onHolderReleased(section, holder);
+        }
+        return recycle;
+    }
+
+    @Override
+    public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
+        final Section section = getSection(holder);
+        if (section != null) {
+            // noinspection unchecked
+            section.mAdapter.onViewAttachedToWindow(holder);
+        }
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
+        final Section section = getSection(holder);
+        if (section != null) {
+            // noinspection unchecked
+            section.mAdapter.onViewDetachedFromWindow(holder);
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        mRecyclerViews.add(recyclerView);
+        for (Section section : mSections) {
+            section.mAdapter.onAttachedToRecyclerView(recyclerView);
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        mRecyclerViews.remove(recyclerView);
+        for (Section section : mSections) {
+            section.mAdapter.onDetachedFromRecyclerView(recyclerView);
+        }
+        // 不在任何RecyclerView中,移除的段不会再有ViewHolder回来
+        if (mRecyclerViews.isEmpty()) {
+            while (!mRemovedSections.isEmpty()) {
+                releaseViewTypes(mRemovedSections.get(mRemovedSections.size() - 1));
+            }
+        }
+    }
+
+    /**
+     * 一段,将段内的数据变化加上偏移量后转发
+     */
+    private class Section {
+        private final RecyclerView.Adapter mAdapter;
+        /**
+         * 段的序号,用于stable id的高位,添加后不变,移除后会被新的段复用
+         */
+        private final int mId;
+        /**
+         * 段内view type到全局view type的映射
+         */
+        private final SparseIntArray mViewTypes = new SparseIntArray();
+        /**
+         * 绑定过并且还没有回收的ViewHolder,不包括缓存池中的
+         */
+        private final Set<RecyclerView.ViewHolder> mActiveHolders = new HashSet<>();
+        /**
+         * 在mSections中的位置,和偏移量一起重新计算
+         */
+        private int mIndex;
+        /**
+         * 上一次计算偏移量时的数量
+         */
+        private int mItemCount;
+        private final RecyclerView.AdapterDataObserver mObserver
+                = new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                mIsOffsetsDirty = true;
+                notifyDataSetChanged();
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                notifyItemRangeChanged(getSectionOffset(Section.this) + positionStart, itemCount);
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                notifyItemRangeChanged(getSectionOffset(Section.this) + positionStart, itemCount,
+                        payload);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                // 之前的段的数量没有变化,偏移量可以先计算
+                final int offset = getSectionOffset(Section.this);
+                mIsOffsetsDirty = true;
+                notifyItemRangeInserted(offset + positionStart, itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                final int offset = getSectionOffset(Section.this);
+                mIsOffsetsDirty = true;
+                notifyItemRangeRemoved(offset + positionStart, itemCount);
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                final int offset = getSectionOffset(Section.this);
+                if (itemCount == 1) {
+                    notifyItemMoved(offset + fromPosition, offset + toPosition);
+                } else {
+                    mIsOffsetsDirty = true;
+                    notifyDataSetChanged();
+                }
+            }
+        };
+
+        Section(RecyclerView.Adapter adapter, int id) {
+            mAdapter = adapter;
+            mId = id;
+        }
+    }
+
+    /**
+     * 只有一个视图的段
+     */
+    static class SingleViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        private final View mView;
+
+        SingleViewAdapter(View view) {
+            mView = view;
+            setHasStableIds(true);
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new RecyclerView.ViewHolder(mView) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return 0;
+        }
+
+        @Override
+        public int getItemCount() {
+            return 1;
+        }
+    }
+}
@@ -8,24 +8,86 @@ import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.view.View;
 import android.view.ViewGroup;
 
+import java.util.List;
+
 /**
  * 将Adapter包装成支持header和footer的HeaderAndFooterWrapper,处理里不同LayoutManager下header和footer的
  * 正常显示.
  * @author https://github.com/DroidWorkerLYF
  */
-public class HeaderAndFooterWrapper extends RecyclerView.Adapter {
-    private static final int TYPE_HEADER = 10000;
-    private static final int TYPE_FOOTER = 10001;
+public class HeaderAndFooterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+    private static final int TYPE_HEADER = 100000;
+    private static final int TYPE_FOOTER = 200000;
+    /**
+     * header和footer的stable id从这里开始加上view type,被包装的Adapter不应该使用这个范围的id
+     */
+    private static final long HEADER_FOOTER_ID_BASE = Long.MIN_VALUE;
     private SparseArrayCompat<View> mHeaders = new SparseArrayCompat<>();
     private SparseArrayCompat<View> mFooters = new SparseArrayCompat<>();
+    /**
+     * 下一个header和footer使用的view type,只增不减,移除后再添加也不会和已有的重复
+     */
+    private int mNextHeaderType = TYPE_HEADER;
+    private int mNextFooterType = TYPE_FOOTER;
     private RecyclerView.Adapter mWrappedAdapter;
+    /**
+     * 是否在监听被包装的Adapter,只在attach到RecyclerView期间监听,避免被包装的Adapter持有整个视图
+     */
+    private boolean mIsObserving;
+    /**
+     * 停止监听期间记录被包装的Adapter有没有变化,只持有计数,不持有视图
+     */
+    private MissedChangeObserver mMissedChangeObserver;
+    /**
+     * 停止监听时被包装的Adapter的数量
+     */
+    private int mStoppedItemCount;
+    /**
+     * 将被包装的Adapter的数据变化加上header的偏移量后转发出去
+     */
+    private RecyclerView.AdapterDataObserver mWrappedObserver
+            = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            notifyItemRangeChanged(positionStart + getHeaderCount(), itemCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            notifyItemRangeChanged(positionStart + getHeaderCount(), itemCount, payload);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            notifyItemRangeInserted(positionStart + getHeaderCount(), itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            notifyItemRangeRemoved(positionStart + getHeaderCount(), itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            if (itemCount == 1) {
+                notifyItemMoved(fromPosition + getHeaderCount(), toPosition + getHeaderCount());
+            } else {
+                notifyDataSetChanged();
+            }
+        }
+    };
 
     public HeaderAndFooterWrapper() {
 
     }
 
     public HeaderAndFooterWrapper(RecyclerView.Adapter adapter) {
-        mWrappedAdapter = adapter;
+        setWrappedAdapter(adapter);
     }
 
     public boolean isHeader(int position) {
@@ -59,8 +121,73 @@ public class HeaderAndFooterWrapper extends RecyclerView.Adapter {
         return mWrappedAdapter.getItemCount();
     }
 
+    /**
+     * 设置被包装的Adapter,stable id的设置和被包装的Adapter保持一致.
+     * 已经设置给RecyclerView后无法修改stable id的设置,需要先从RecyclerView移除
+     * @param adapter 被包装的Adapter
+     */
     public void setWrappedAdapter(@NonNull RecyclerView.Adapter adapter) {
+        if (mWrappedAdapter != null && mIsObserving) {
+            mWrappedAdapter.unregisterAdapterDataObserver(mWrappedObserver);
+        }
+        if (mMissedChangeObserver != null) {
+            // 停止监听期间换了Adapter,重新监听时全部刷新
+            mWrappedAdapter.unregisterAdapterDataObserver(mMissedChangeObserver);
+            mMissedChangeObserver.mChangeCount++;
+            adapter.registerAdapterDataObserver(mMissedChangeObserver);
+        }
         mWrappedAdapter = adapter;
+        if (hasStableIds() != adapter.hasStableIds()) {
+            setHasStableIds(adapter.hasStableIds());
+        }
+        if (mIsObserving) {
+            adapter.registerAdapterDataObserver(mWrappedObserver);
+        }
+    }
+
+    /**
+     * 开始监听被包装的Adapter,只有停止监听期间确实有变化时才全部刷新
+     * @return 停止监听期间是否有变化
+     */
+    boolean startObserving() {
+        if (mIsObserving || mWrappedAdapter == null) {
+            return false;
+        }
+        boolean changed = false;
+        if (mMissedChangeObserver != null) {
+            mWrappedAdapter.unregisterAdapterDataObserver(mMissedChangeObserver);
+            changed = mMissedChangeObserver.mChangeCount > 0
+                    || mStoppedItemCount != getWrappedItemCount();
+            mMissedChangeObserver = null;
+        }
+        mWrappedAdapter.registerAdapterDataObserver(mWrappedObserver);
+        mIsObserving = true;
+        if (changed) {
+            notifyDataSetChanged();
+        }
+        return changed;
+    }
+
+    /**
+     * 停止监听被包装的Adapter,之后的变化只计数
+     */
+    void stopObserving() {
+        if (!mIsObserving) {
+            return;
+        }
+        mWrappedAdapter.unregisterAdapterDataObserver(mWrappedObserver);
+        mIsObserving = false;
+        mStoppedItemCount = getWrappedItemCount();
+        mMissedChangeObserver = new MissedChangeObserver();
+        mWrappedAdapter.registerAdapterDataObserver(mMissedChangeObserver);
+    }
+
+    /**
+     * 在被包装的数据的头部插入了数据,只通知插入的部分,不会影响header
+     * @param itemCount 插入的数量
+     */
+    public void notifyWrappedItemRangeInsertedAtStart(int itemCount) {
+        notifyItemRangeInserted(getHeaderCount(), itemCount);
     }
 
     public RecyclerView.Adapter getWrappedAdapter() {
@@ -68,19 +195,20 @@ public class HeaderAndFooterWrapper extends RecyclerView.Adapter {
     }
 
     public void addHeader(View header) {
-        mHeaders.put(mHeaders.size() + TYPE_HEADER, header);
-        notifyDataSetChanged();
+        mHeaders.put(mNextHeaderType++, header);
+        notifyItemInserted(getHeaderCount() - 1);
     }
 
     public void addFooter(View footer) {
-        mFooters.put(mFooters.size() + TYPE_FOOTER, footer);
-        notifyDataSetChanged();
+        mFooters.put(mNextFooterType++, footer);
+        notifyItemInserted(getItemCount() - 1);
     }
 
     public void removeHeader(View header) {
         final int position = mHeaders.indexOfValue(header);
         if (position != -1) {
             mHeaders.removeAt(position);
+            notifyItemRemoved(position);
         }
     }
 
@@ -88,6 +216,7 @@ public class HeaderAndFooterWrapper extends RecyclerView.Adapter {
         final int position = mFooters.indexOfValue(footer);
         if (position != -1) {
             mFooters.removeAt(position);
+            notifyItemRemoved(getHeaderCount() + getWrappedItemCount() + position);
         }
     }
 
@@ -101,6 +230,17 @@ public class HeaderAndFooterWrapper extends RecyclerView.Adapter {
         return mWrappedAdapter.getItemViewType(position - getHeaderCount());
     }
 
+    /**
+     * header和footer使用不会和被包装的Adapter冲突的固定id,其他的使用被包装的Adapter的id
+     */
+    @Override
+    public long getItemId(int position) {
+        if (isHeader(position) || isFooter(position)) {
+            return HEADER_FOOTER_ID_BASE + getItemViewType(position);
+        }
+        return mWrappedAdapter.getItemId(position - getHeaderCount());
+    }
+
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
         if (mHeaders.get(viewType) != null) {
@@ -120,6 +260,19 @@ public class HeaderAndFooterWrapper extends RecyclerView.Adapter {
         mWrappedAdapter.onBindViewHolder(holder, position - getHeaderCount());
     }
 
+    /**
+     * 带payload的局部刷新同样转发给被包装的Adapter,避免每次都全部重新绑定
+     */
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position,
+            List<Object> payloads) {
+        if (isHeader(position) || isFooter(position) || mWrappedAdapter == null) {
+            return;
+        }
+        // noinspection unchecked
+        mWrappedAdapter.onBindViewHolder(holder, position - getHeaderCount(), payloads);
+    }
+
     @Override
     public int getItemCount() {
         return getHeaderCount() + getWrappedItemCount() + getFooterCount();
@@ -127,6 +280,7 @@ public class HeaderAndFooterWrapper extends RecyclerView.Adapter {
 
     @Override
     public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        startObserving();
         mWrappedAdapter.onAttachedToRecyclerView(recyclerView);
         final RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
         if (layoutManager instanceof GridLayoutManager) {
@@ -144,12 +298,17 @@ public class HeaderAndFooterWrapper extends RecyclerView.Adapter {
         }
     }
 
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        stopObserving();
+        mWrappedAdapter.onDetachedFromRecyclerView(recyclerView);
+    }
+
     @Override
     public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
-        // noinspection unchecked
-        mWrappedAdapter.onViewAttachedToWindow(holder);
-        final int position = holder.getAdapterPosition();
-        if (!isHeader(position) || !isFooter(position)) {
+        if (!(holder instanceof HeaderFooterViewHolder)) {
+            // noinspection unchecked
+            mWrappedAdapter.onViewAttachedToWindow(holder);
             return;
         }
         ViewGroup.LayoutParams layoutParams = holder.itemView.getLayoutParams();
@@ -159,6 +318,71 @@ public class HeaderAndFooterWrapper extends RecyclerView.Adapter {
         }
     }
 
+    /**
+     * 以下的回调只转发被包装的Adapter创建的ViewHolder,header和footer由这里创建
+     */
+    @Override
+    public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
+        if (!(holder instanceof HeaderFooterViewHolder)) {
+            // noinspection unchecked
+            mWrappedAdapter.onViewDetachedFromWindow(holder);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        if (!(holder instanceof HeaderFooterViewHolder)) {
+            // noinspection unchecked
+            mWrappedAdapter.onViewRecycled(holder);
+        }
+    }
+
+    @Override
+    public boolean onFailedToRecycleView(RecyclerView.ViewHolder holder) {
+        if (holder instanceof HeaderFooterViewHolder) {
+            return super.onFailedToRecycleView(holder);
+        }
+        // noinspection unchecked
+        return mWrappedAdapter.onFailedToRecycleView(holder);
+    }
+
+    /**
+     * 停止监听期间只记录变化的次数,static避免被包装的Adapter持有header和footer
+     */
+    private static class MissedChangeObserver extends RecyclerView.AdapterDataObserver {
+        private int mChangeCount;
+
+        @Override
+        public void onChanged() {
+            mChangeCount++;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            mChangeCount++;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            mChangeCount++;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mChangeCount++;
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mChangeCount++;
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mChangeCount++;
+        }
+    }
+
     private class HeaderFooterViewHolder extends RecyclerView.ViewHolder {
 
         public HeaderFooterViewHolder(View itemView) {
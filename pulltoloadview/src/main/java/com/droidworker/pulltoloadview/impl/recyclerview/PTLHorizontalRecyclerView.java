@@ -1,5 +1,6 @@
 package com.droidworker.pulltoloadview.impl.recyclerview;
 
+import com.droidworker.pulltoloadview.PullToLoadConfig;
 import com.droidworker.pulltoloadview.constant.Orientation;
 
 import android.content.Context;
@@ -21,6 +22,10 @@ public class PTLHorizontalRecyclerView extends PTLRecyclerView {
         super(context, attrs);
     }
 
+    public PTLHorizontalRecyclerView(Context context, PullToLoadConfig config) {
+        super(context, config);
+    }
+
     @Override
     protected Orientation getScrollOrientation() {
         return Orientation.HORIZONTAL;
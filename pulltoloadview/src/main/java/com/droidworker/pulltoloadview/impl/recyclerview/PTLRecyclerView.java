@@ -1,18 +1,25 @@
 package com.droidworker.pulltoloadview.impl.recyclerview;
 
+import com.droidworker.pulltoloadview.ConditionViewFactory;
+import com.droidworker.pulltoloadview.ILoadingLayout;
+import com.droidworker.pulltoloadview.LoadingLayoutPool;
 import com.droidworker.pulltoloadview.PullToLoadBaseView;
+import com.droidworker.pulltoloadview.PullToLoadConfig;
 import com.droidworker.pulltoloadview.constant.Direction;
 import com.droidworker.pulltoloadview.constant.LoadMode;
 import com.droidworker.pulltoloadview.constant.State;
 import com.droidworker.pulltoloadview.impl.LoadingLayout;
 
 import android.content.Context;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
+import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.view.ViewGroup;
 
 /**
  * 支持加载更新,加载更多的RecyclerView扩展.
@@ -27,6 +34,14 @@ public abstract class PTLRecyclerView extends PullToLoadBaseView<RecyclerView> {
      * 自动加载更多时添加到最后的footer
      */
     private LoadingLayout mAutoLoadFooter;
+    /**
+     * 是否用ItemDecoration绘制自动加载更多的footer,代替添加到列表中的footer
+     */
+    private boolean mIsAutoLoadFooterDecorated;
+    /**
+     * 用ItemDecoration绘制的footer,只在mIsAutoLoadFooterDecorated为true时使用
+     */
+    private AutoLoadFooterDecoration mAutoLoadFooterDecoration;
     /**
      * 是否要加载更多
      */
@@ -36,10 +51,56 @@ public abstract class PTLRecyclerView extends PullToLoadBaseView<RecyclerView> {
      */
     private RecyclerView.OnScrollListener mOnScrollListener;
     private InternalObserver mInternalObserver = new InternalObserver();
-    private Runnable mHideFooterRunnable = new Runnable() {
+    /**
+     * mInternalObserver是否注册在被包装的Adapter上
+     */
+    private boolean mIsInternalObserverRegistered;
+    /**
+     * 向前加载的回调,不为null时开启向前加载
+     */
+    private OnLoadPreviousListener mOnLoadPreviousListener;
+    /**
+     * 是否正在向前加载
+     */
+    private boolean mIsLoadingPrevious;
+    /**
+     * 是否已经没有更早的数据
+     */
+    private boolean mIsAllPreviousLoaded;
+    /**
+     * 第一个可见的item距离开始的数量小于等于此值时,触发向前加载
+     */
+    private int mLoadPreviousThreshold = 2;
+    /**
+     * 只保留可见区域附近数据的存储,不为null时滚动会更新它的可见区域
+     */
+    private WindowedPageStore mWindowedPageStore;
+    /**
+     * 内容末尾距离可见区域末尾小于等于此距离时,认为没有填满,继续自动加载更多
+     */
+    private int mPrefetchMargin;
+    /**
+     * 检查内容是否填满了可见区域,在布局完成之后执行
+     */
+    private final Runnable mFillViewportRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mContentView.isLayoutRequested()) {
+                // 数据的变化还没有布局,等到下一帧
+                ViewCompat.postOnAnimation(mContentView, this);
+                return;
+            }
+            checkFillViewport();
+        }
+    };
+
+    /**
+     * 重新attach后处理detach期间错过的数据变化
+     */
+    private final Runnable mMissedChangeRunnable = new Runnable() {
         @Override
         public void run() {
-            updateFooterHeight(false);
+            mInternalObserver.onChanged();
         }
     };
 
@@ -51,6 +112,10 @@ public abstract class PTLRecyclerView extends PullToLoadBaseView<RecyclerView> {
         super(context, attrs);
     }
 
+    public PTLRecyclerView(Context context, PullToLoadConfig config) {
+        super(context, config);
+    }
+
     @Override
     public boolean canScrollVertical(Direction direction) {
         return internalCanScrollVertical(direction, false);
@@ -75,7 +140,7 @@ public abstract class PTLRecyclerView extends PullToLoadBaseView<RecyclerView> {
             LoadMode loadMode = getMode();
             if (loadMode.isAutoLoadMore()) {
                 if (loadMode.shouldShowAutoLoadMoreFooter()) {
-                    return offset < range - mAutoLoadFooter.getHeight();
+                    return offset < range - getAutoLoadFooterSize();
                 } else {
                     View view = findLastVisibleItem();
                     if (view == null || !earlyLoading) {
@@ -107,7 +172,7 @@ public abstract class PTLRecyclerView extends PullToLoadBaseView<RecyclerView> {
             LoadMode loadMode = getMode();
             if (loadMode.isAutoLoadMore()) {
                 if (loadMode.shouldShowAutoLoadMoreFooter()) {
-                    return offset < range - mAutoLoadFooter.getWidth();
+                    return offset < range - getAutoLoadFooterSize();
                 } else {
                     View view = findLastVisibleItem();
                     if (view == null || !earlyLoading) {
@@ -154,11 +219,7 @@ public abstract class PTLRecyclerView extends PullToLoadBaseView<RecyclerView> {
 
                 if (newState == RecyclerView.SCROLL_STATE_IDLE && loadMore && !isAllLoaded()) {
                     if (getMode().isAutoLoadMore()) {
-                        setCurLoadMode(LoadMode.END);
-                        if (mAutoLoadFooter != null) {
-                            mAutoLoadFooter.onPull(State.LOADING, 0);
-                        }
-                        setState(State.LOADING);
+                        autoLoadMore();
                     }
                 }
 
@@ -184,6 +245,9 @@ public abstract class PTLRecyclerView extends PullToLoadBaseView<RecyclerView> {
                 loadMore = loadMore && getMode().isAutoLoadMore()
                         && mWrapper.getWrappedItemCount() > 0;
 
+                checkLoadPrevious();
+                updateWindowedPageStore();
+
                 if (mOnScrollListener != null) {
                     mOnScrollListener.onScrolled(recyclerView, dx, dy);
                 }
@@ -194,31 +258,120 @@ public abstract class PTLRecyclerView extends PullToLoadBaseView<RecyclerView> {
 
     @Override
     protected void updateContentUI(boolean isUnderBar) {
-        mContentView.scrollToPosition(0);
+        updateAutoLoadFooter();
+    }
+
+    /**
+     * 只增加或者移除footer,不重置滚动位置
+     */
+    private void updateAutoLoadFooter() {
+        if (getMode().shouldShowAutoLoadMoreFooter() && mIsAutoLoadFooterDecorated
+                && AutoLoadFooterDecoration.isSupported(mContentView.getLayoutManager())) {
+            removeLoadingFooter();
+            mAutoLoadFooter = null;
+            if (mAutoLoadFooterDecoration == null) {
+                mAutoLoadFooterDecoration = new AutoLoadFooterDecoration(getContext(),
+                        getScrollOrientation());
+                mAutoLoadFooterDecoration.setEnabled(mContentView, !isAllLoaded());
+                mAutoLoadFooterDecoration.setLoading(mContentView, isAutoLoadingMore());
+                mContentView.addItemDecoration(mAutoLoadFooterDecoration);
+            }
+            return;
+        }
+        if (mAutoLoadFooterDecoration != null) {
+            mContentView.removeItemDecoration(mAutoLoadFooterDecoration);
+            mAutoLoadFooterDecoration = null;
+        }
         if (getMode().shouldShowAutoLoadMoreFooter()) {
             if (mAutoLoadFooter == null) {
-                mAutoLoadFooter = new LoadingLayout(getContext(), getScrollOrientation());
-                RecyclerView.LayoutParams layoutParams;
-                switch (getScrollOrientation()) {
-                case VERTICAL:
-                default:
-                    layoutParams = new RecyclerView.LayoutParams(LayoutParams.MATCH_PARENT,
-                            LayoutParams.WRAP_CONTENT);
-                    break;
-                case HORIZONTAL:
-                    layoutParams = new RecyclerView.LayoutParams(LayoutParams.WRAP_CONTENT,
-                            LayoutParams.MATCH_PARENT);
-                    break;
-                }
-                mAutoLoadFooter.setLayoutParams(layoutParams);
+                mAutoLoadFooter = obtainAutoLoadFooter();
+            }
+            if (!isAllLoaded()) {
+                addLoadingFooter();
             }
-            addLoadingFooter();
         } else {
             removeLoadingFooter();
             mAutoLoadFooter = null;
         }
     }
 
+    /**
+     * 设置是否用ItemDecoration绘制自动加载更多的footer.footer不再是adapter中的item,
+     * adapter的位置和数量与数据一致,Grid中也不需要单独计算span,并且不需要额外的视图.
+     * StaggeredGridLayoutManager不支持,仍然使用添加到列表中的footer
+     * @param isAutoLoadFooterDecorated true则用ItemDecoration绘制
+     */
+    public void setAutoLoadFooterDecorated(boolean isAutoLoadFooterDecorated) {
+        if (mIsAutoLoadFooterDecorated == isAutoLoadFooterDecorated) {
+            return;
+        }
+        mIsAutoLoadFooterDecorated = isAutoLoadFooterDecorated;
+        updateAutoLoadFooter();
+    }
+
+    public boolean isAutoLoadFooterDecorated() {
+        return mIsAutoLoadFooterDecorated;
+    }
+
+    /**
+     * 优先从pool中取出自动加载更多的footer,没有则创建
+     * @return footer
+     */
+    private LoadingLayout obtainAutoLoadFooter() {
+        LoadingLayout footer = null;
+        final LoadingLayoutPool pool = getLoadingLayoutPool();
+        if (pool != null) {
+            final ILoadingLayout loadingLayout = pool.acquire(
+                    LoadingLayoutPool.ROLE_AUTO_LOAD_FOOTER, getScrollOrientation(), 0);
+            if (loadingLayout instanceof LoadingLayout) {
+                footer = (LoadingLayout) loadingLayout;
+            }
+        }
+        if (footer == null) {
+            footer = new LoadingLayout(getContext(), getScrollOrientation());
+        }
+        RecyclerView.LayoutParams layoutParams;
+        switch (getScrollOrientation()) {
+        case VERTICAL:
+        default:
+            layoutParams = new RecyclerView.LayoutParams(LayoutParams.MATCH_PARENT,
+                    LayoutParams.WRAP_CONTENT);
+            break;
+        case HORIZONTAL:
+            layoutParams = new RecyclerView.LayoutParams(LayoutParams.WRAP_CONTENT,
+                    LayoutParams.MATCH_PARENT);
+            break;
+        }
+        footer.setLayoutParams(layoutParams);
+        footer.setVisibility(VISIBLE);
+        footer.setPaused(!isVisibleToUser());
+        return footer;
+    }
+
+    /**
+     * 自动加载更多的footer在列表中时由RecyclerView持有,只有全部加载完毕被移出列表后才能放回pool
+     */
+    @Override
+    protected void onReleaseLoadingLayouts(LoadingLayoutPool loadingLayoutPool) {
+        if (mAutoLoadFooter != null && !mWrapper.containsFooter(mAutoLoadFooter)
+                && mAutoLoadFooter.getParent() == null) {
+            loadingLayoutPool.release(LoadingLayoutPool.ROLE_AUTO_LOAD_FOOTER,
+                    getScrollOrientation(), 0, mAutoLoadFooter);
+            mAutoLoadFooter = null;
+        }
+    }
+
+    @Override
+    protected void onAcquireLoadingLayouts(LoadingLayoutPool loadingLayoutPool) {
+        if (mAutoLoadFooter == null && getMode().shouldShowAutoLoadMoreFooter()
+                && !mIsAutoLoadFooterDecorated) {
+            mAutoLoadFooter = obtainAutoLoadFooter();
+            if (!isAllLoaded()) {
+                addLoadingFooter();
+            }
+        }
+    }
+
     /**
      * 添加自动加载更多的footer
      */
@@ -229,8 +382,7 @@ public abstract class PTLRecyclerView extends PullToLoadBaseView<RecyclerView> {
     }
 
     /**
-     * 移除自动加载更多的footer,只使用于非{@link LoadMode#START_AUTO_LOAD_MORE_WITH_FOOTER}
-     * 否则,应该使用{@link #updateFooterHeight(boolean)}
+     * 移除自动加载更多的footer,全部加载完毕时也通过移除item来隐藏footer,不需要修改布局参数
      */
     private void removeLoadingFooter() {
         if (mWrapper != null && mWrapper.containsFooter(mAutoLoadFooter)) {
@@ -239,66 +391,336 @@ public abstract class PTLRecyclerView extends PullToLoadBaseView<RecyclerView> {
     }
 
     /**
-     * 根据是否show出来,设定
-     * @param show
+     * @return 自动加载更多的footer在列表中的大小,没有添加到列表中则为0
+     */
+    private int getAutoLoadFooterSize() {
+        if (mAutoLoadFooterDecoration != null) {
+            return mAutoLoadFooterDecoration.getSize();
+        }
+        if (mAutoLoadFooter == null || !mWrapper.containsFooter(mAutoLoadFooter)) {
+            return 0;
+        }
+        switch (getScrollOrientation()) {
+        case VERTICAL:
+        default:
+            return mAutoLoadFooter.getHeight();
+        case HORIZONTAL:
+            return mAutoLoadFooter.getWidth();
+        }
+    }
+
+    /**
+     * 开始自动加载更多并显示footer的加载状态
      */
-    private void updateFooterHeight(boolean show) {
-        if (mAutoLoadFooter == null) {
+    private void autoLoadMore() {
+        if (!startAutoLoadMore()) {
             return;
         }
-        RecyclerView.LayoutParams layoutParams = (RecyclerView.LayoutParams) mAutoLoadFooter
-                .getLayoutParams();
+        if (mAutoLoadFooter != null) {
+            mAutoLoadFooter.onPull(State.LOADING, 0);
+        } else if (mAutoLoadFooterDecoration != null) {
+            mAutoLoadFooterDecoration.setLoading(mContentView, true);
+        }
+    }
+
+    /**
+     * 设置预加载的距离,提交一页数据后如果内容末尾距离可见区域末尾小于等于此距离,
+     * 会继续自动加载更多,直到填满或者全部加载完毕.第一页不足一屏时,例如在平板上,也能继续加载
+     * @param prefetchMargin 距离,单位px
+     */
+    public void setPrefetchMargin(int prefetchMargin) {
+        mPrefetchMargin = Math.max(prefetchMargin, 0);
+    }
+
+    /**
+     * 在下一次布局完成之后检查内容是否填满了可见区域
+     */
+    private void scheduleFillViewport() {
+        mContentView.removeCallbacks(mFillViewportRunnable);
+        ViewCompat.postOnAnimation(mContentView, mFillViewportRunnable);
+    }
+
+    /**
+     * 内容没有超出可见区域加预加载距离时自动加载更多.此时列表无法滚动,不会收到滚动回调
+     */
+    private void checkFillViewport() {
+        if (!getMode().isAutoLoadMore() || isAllLoaded() || mWrapper.getWrappedItemCount() == 0
+                || mContentView.getScrollState() != RecyclerView.SCROLL_STATE_IDLE) {
+            return;
+        }
+        final int remaining;
         switch (getScrollOrientation()) {
         case VERTICAL:
         default:
-            layoutParams.height = show ? LayoutParams.WRAP_CONTENT : 1;
+            remaining = mContentView.computeVerticalScrollRange()
+                    - mContentView.computeVerticalScrollExtent()
+                    - mContentView.computeVerticalScrollOffset();
             break;
         case HORIZONTAL:
-            layoutParams.width = show ? LayoutParams.WRAP_CONTENT : 1;
+            remaining = mContentView.computeHorizontalScrollRange()
+                    - mContentView.computeHorizontalScrollExtent()
+                    - mContentView.computeHorizontalScrollOffset();
             break;
         }
-        mAutoLoadFooter.setVisibility(show ? View.VISIBLE : View.INVISIBLE);
-        mAutoLoadFooter.setLayoutParams(layoutParams);
+        if (remaining - getAutoLoadFooterSize() <= mPrefetchMargin) {
+            autoLoadMore();
+        }
+    }
+
+    @Override
+    protected void onVisibleToUserChanged(boolean isVisibleToUser) {
+        setLoadingLayoutPaused(mAutoLoadFooter, !isVisibleToUser);
+        if (isVisibleToUser) {
+            // 不可见期间滚动到末尾推迟的自动加载更多
+            if (loadMore && getMode().isAutoLoadMore()) {
+                autoLoadMore();
+            }
+            scheduleFillViewport();
+        } else {
+            mContentView.removeCallbacks(mFillViewportRunnable);
+        }
     }
 
     @Override
-    public void onLoadComplete() {
+    protected void onLoadCommitted(LoadMode loadMode) {
+        scheduleFillViewport();
+    }
+
+    @Override
+    protected void onAutoLoadMoreFinished() {
+        if (mAutoLoadFooter != null) {
+            mAutoLoadFooter.onPull(State.RESET, 0);
+        } else if (mAutoLoadFooterDecoration != null) {
+            mAutoLoadFooterDecoration.setLoading(mContentView, false);
+        }
+    }
+
+    @Override
+    protected void completeStartOrPullLoad() {
         if (isUpdating()) {
             mContentView.scrollToPosition(0);
         }
-        super.onLoadComplete();
+        super.completeStartOrPullLoad();
     }
 
     @Override
     public void setAllLoaded(boolean isAllLoaded) {
-        // 需要根据是否是全部加载完毕,更新footer高度
-        if (isAllLoaded != isAllLoaded()) {
+        // 根据是否是全部加载完毕,移除或者添加footer,和最后一页的数据在同一帧中生效
+        if (mAutoLoadFooterDecoration != null) {
+            mAutoLoadFooterDecoration.setEnabled(mContentView, !isAllLoaded);
+        }
+        if (isAllLoaded != isAllLoaded() && mAutoLoadFooter != null
+                && getMode().shouldShowAutoLoadMoreFooter()) {
             if (isAllLoaded) {
-                postDelayed(mHideFooterRunnable, 100);
+                removeLoadingFooter();
             } else {
-                updateFooterHeight(true);
+                addLoadingFooter();
             }
         }
         super.setAllLoaded(isAllLoaded);
     }
 
+    @Override
+    protected Parcelable onSaveContentState() {
+        final RecyclerView.LayoutManager layoutManager = mContentView.getLayoutManager();
+        return layoutManager == null ? null : layoutManager.onSaveInstanceState();
+    }
+
+    @Override
+    protected void onRestoreContentState(Parcelable contentState) {
+        // LayoutManager会在下一次布局时滚动到保存的位置
+        final RecyclerView.LayoutManager layoutManager = mContentView.getLayoutManager();
+        if (layoutManager != null) {
+            layoutManager.onRestoreInstanceState(contentState);
+        }
+    }
+
+    /**
+     * 设置向前加载的回调,例如聊天记录,滚动到接近开始位置时自动加载更早的数据,
+     * 并且保持当前可见的内容不动
+     * @param onLoadPreviousListener 回调,null则关闭
+     */
+    public void setOnLoadPreviousListener(OnLoadPreviousListener onLoadPreviousListener) {
+        mOnLoadPreviousListener = onLoadPreviousListener;
+    }
+
+    /**
+     * 设置触发向前加载的距离
+     * @param threshold 第一个可见的item距离开始的数量
+     */
+    public void setLoadPreviousThreshold(int threshold) {
+        mLoadPreviousThreshold = Math.max(threshold, 0);
+    }
+
+    /**
+     * 设置是否已经没有更早的数据
+     * @param isAllPreviousLoaded true则不再向前加载
+     */
+    public void setAllPreviousLoaded(boolean isAllPreviousLoaded) {
+        mIsAllPreviousLoaded = isAllPreviousLoaded;
+    }
+
+    public boolean isLoadingPrevious() {
+        return mIsLoadingPrevious;
+    }
+
+    /**
+     * 向前加载完成.数据已经插入到被包装的Adapter头部,但是不要通知Adapter,
+     * 由此方法通知插入的范围并保持当前可见的item位置不变
+     * @param insertedCount 插入到头部的数量
+     */
+    public void onLoadPreviousComplete(int insertedCount) {
+        mIsLoadingPrevious = false;
+        if (insertedCount <= 0) {
+            return;
+        }
+        final RecyclerView.LayoutManager layoutManager = mContentView.getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager)) {
+            mWrapper.notifyWrappedItemRangeInsertedAtStart(insertedCount);
+            return;
+        }
+        // 记录第一个可见的item和它的偏移量,插入后滚动回原来的位置
+        final LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+        final int anchorPosition = linearLayoutManager.findFirstVisibleItemPosition();
+        final View anchorView = anchorPosition == RecyclerView.NO_POSITION ? null
+                : linearLayoutManager.findViewByPosition(anchorPosition);
+        int anchorOffset = 0;
+        if (anchorView != null) {
+            switch (getScrollOrientation()) {
+            case VERTICAL:
+            default:
+                anchorOffset = linearLayoutManager.getDecoratedTop(anchorView)
+                        - mContentView.getPaddingTop();
+                break;
+            case HORIZONTAL:
+                anchorOffset = linearLayoutManager.getDecoratedLeft(anchorView)
+                        - mContentView.getPaddingLeft();
+                break;
+            }
+        }
+        mWrapper.notifyWrappedItemRangeInsertedAtStart(insertedCount);
+        if (anchorView != null && anchorPosition >= mWrapper.getHeaderCount()) {
+            linearLayoutManager.scrollToPositionWithOffset(anchorPosition + insertedCount,
+                    anchorOffset);
+        }
+    }
+
+    /**
+     * 设置只保留可见区域附近数据的存储,滚动时释放远离可见区域的页,滚动回来时重新加载,
+     * 内存占用不会随着滚动距离增长
+     * @param windowedPageStore 存储,null则关闭
+     */
+    public void setWindowedPageStore(WindowedPageStore windowedPageStore) {
+        mWindowedPageStore = windowedPageStore;
+        if (windowedPageStore != null) {
+            windowedPageStore.setAdapter(getWrappedAdapter());
+        }
+    }
+
+    /**
+     * 将可见区域(去掉header的偏移)同步给{@link WindowedPageStore}
+     */
+    private void updateWindowedPageStore() {
+        if (mWindowedPageStore == null) {
+            return;
+        }
+        final RecyclerView.LayoutManager layoutManager = mContentView.getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager)) {
+            return;
+        }
+        final LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+        final int headerCount = mWrapper.getHeaderCount();
+        final int itemCount = mWrapper.getWrappedItemCount();
+        final int first = Math.max(linearLayoutManager.findFirstVisibleItemPosition()
+                - headerCount, 0);
+        final int last = Math.min(linearLayoutManager.findLastVisibleItemPosition()
+                - headerCount, itemCount - 1);
+        mWindowedPageStore.onVisibleRangeChanged(first, last);
+    }
+
     /**
-     * 设置Adapter,将参数包装为HeaderAndFooterWrapper用于添加header和footer
+     * 第一个可见的item接近开始位置时,触发向前加载
+     */
+    private void checkLoadPrevious() {
+        if (mOnLoadPreviousListener == null || mIsLoadingPrevious || mIsAllPreviousLoaded
+                || mWrapper.getWrappedItemCount() == 0) {
+            return;
+        }
+        final RecyclerView.LayoutManager layoutManager = mContentView.getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager)) {
+            return;
+        }
+        final int first = ((LinearLayoutManager) layoutManager).findFirstVisibleItemPosition();
+        if (first != RecyclerView.NO_POSITION
+                && first - mWrapper.getHeaderCount() <= mLoadPreviousThreshold) {
+            mIsLoadingPrevious = true;
+            mOnLoadPreviousListener.onLoadPrevious();
+        }
+    }
+
+    /**
+     * 设置Adapter,将参数包装为HeaderAndFooterWrapper用于添加header和footer.
+     * adapter有stable id时包装后同样有stable id
      * @param adapter adapter
      */
     public void setAdapter(@NonNull RecyclerView.Adapter adapter) {
         if (mWrapper == null) {
             return;
         }
-        RecyclerView.Adapter oldAdapter = getWrappedAdapter();
-        if (oldAdapter != null) {
-            oldAdapter.unregisterAdapterDataObserver(mInternalObserver);
+        if (mWrapper.hasStableIds() != adapter.hasStableIds()
+                && mContentView.getAdapter() == mWrapper) {
+            // 有observer时不能修改stable id的设置,先移除
+            mContentView.setAdapter(null);
         }
-        adapter.registerAdapterDataObserver(mInternalObserver);
+        unregisterInternalObserver();
         mWrapper.setWrappedAdapter(adapter);
+        registerInternalObserver();
+        if (mWindowedPageStore != null) {
+            mWindowedPageStore.setAdapter(adapter);
+        }
         mContentView.setAdapter(mWrapper);
     }
 
+    private void registerInternalObserver() {
+        final RecyclerView.Adapter adapter = getWrappedAdapter();
+        if (!mIsInternalObserverRegistered && adapter != null) {
+            adapter.registerAdapterDataObserver(mInternalObserver);
+            mIsInternalObserverRegistered = true;
+        }
+    }
+
+    private void unregisterInternalObserver() {
+        final RecyclerView.Adapter adapter = getWrappedAdapter();
+        if (mIsInternalObserverRegistered && adapter != null) {
+            adapter.unregisterAdapterDataObserver(mInternalObserver);
+        }
+        mIsInternalObserverRegistered = false;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (!mIsInternalObserverRegistered && getWrappedAdapter() != null) {
+            registerInternalObserver();
+            if (mWrapper.startObserving()) {
+                // detach期间错过了数据变化,attach过程中不更新空视图,避免在这里inflate
+                post(mMissedChangeRunnable);
+            }
+        }
+    }
+
+    /**
+     * 被包装的Adapter的生命周期通常比视图长,detach时解除它对视图的引用,重新attach时恢复
+     */
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        unregisterInternalObserver();
+        mWrapper.stopObserving();
+        mContentView.removeCallbacks(mFillViewportRunnable);
+        removeCallbacks(mMissedChangeRunnable);
+    }
+
     /**
      * 获取包装后的Adapter
      * @return {@link HeaderAndFooterWrapper}
@@ -335,14 +757,54 @@ public abstract class PTLRecyclerView extends PullToLoadBaseView<RecyclerView> {
         addConditionViewInternal(emptyView, EMPTY);
     }
 
+    /**
+     * 设置空数据时展示的视图,在第一次展示时才inflate
+     * @param layoutId 视图的layout id
+     */
+    public void setEmptyView(final int layoutId) {
+        addConditionViewFactoryInternal(new ConditionViewFactory() {
+            @Override
+            public View createConditionView(Context context, ViewGroup parent) {
+                return LayoutInflater.from(context).inflate(layoutId, parent, false);
+            }
+        }, EMPTY);
+    }
+
+    /**
+     * 向前加载的回调
+     */
+    public interface OnLoadPreviousListener {
+        /**
+         * 加载更早的数据,完成后调用{@link #onLoadPreviousComplete(int)}
+         */
+        void onLoadPrevious();
+    }
+
     private class InternalObserver extends RecyclerView.AdapterDataObserver {
         @Override
         public void onChanged() {
             super.onChanged();
+            updateEmptyView();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            super.onItemRangeInserted(positionStart, itemCount);
+            updateEmptyView();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            super.onItemRangeRemoved(positionStart, itemCount);
+            updateEmptyView();
+        }
+
+        private void updateEmptyView() {
             if (mWrapper.getWrappedItemCount() == 0) {
                 showConditionView(EMPTY);
             } else {
                 hideConditionView(EMPTY);
+                scheduleFillViewport();
             }
         }
     }
@@ -1,5 +1,6 @@
 package com.droidworker.pulltoloadview.impl.recyclerview;
 
+import com.droidworker.pulltoloadview.PullToLoadConfig;
 import com.droidworker.pulltoloadview.constant.Orientation;
 
 import android.content.Context;
@@ -22,6 +23,10 @@ public class PTLVerticalRecyclerView extends PTLRecyclerView {
         super(context, attrs);
     }
 
+    public PTLVerticalRecyclerView(Context context, PullToLoadConfig config) {
+        super(context, config);
+    }
+
     @Override
     protected Orientation getScrollOrientation() {
         return Orientation.VERTICAL;
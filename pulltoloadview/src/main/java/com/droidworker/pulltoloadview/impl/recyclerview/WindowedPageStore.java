@@ -0,0 +1,181 @@
+package com.droidworker.pulltoloadview.impl.recyclerview;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 按页保存数据,只保留可见区域附近{@link #setWindowPages(int)}页以内的数据,更远的页会被释放,
+ * 对应的位置返回null,由Adapter显示固定大小的占位视图,保证position和滚动位置不变.
+ * 滚动回被释放的页时会自动重新加载.
+ * 配合{@link PTLRecyclerView#setWindowedPageStore(WindowedPageStore)}使用,所有方法都需要在主线程调用.
+ * @param <E> item数据
+ * @author https://github.com/DroidWorkerLYF
+ */
+public class WindowedPageStore<E> {
+    private static final int DEFAULT_WINDOW_PAGES = 2;
+    /**
+     * 每页的数量,最后一页可以不满
+     */
+    private final int mPageSize;
+    private final PageLoader mPageLoader;
+    /**
+     * 已加载的页,按页码排序以便释放窗口以外的范围
+     */
+    private final TreeMap<Integer, List<E>> mPages = new TreeMap<>();
+    /**
+     * 被释放后正在重新加载的页
+     */
+    private final TreeSet<Integer> mReloading = new TreeSet<>();
+    /**
+     * 数据总数,包括被释放的页
+     */
+    private int mCount;
+    /**
+     * 可见区域前后保留的页数
+     */
+    private int mWindowPages = DEFAULT_WINDOW_PAGES;
+    private RecyclerView.Adapter mAdapter;
+
+    /**
+     * @param pageSize 每页的数量
+     * @param pageLoader 重新加载被释放的页
+     */
+    public WindowedPageStore(int pageSize, PageLoader pageLoader) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("page size should be greater than 0");
+        }
+        mPageSize = pageSize;
+        mPageLoader = pageLoader;
+    }
+
+    /**
+     * 设置可见区域前后保留的页数
+     * @param windowPages 页数
+     */
+    public void setWindowPages(int windowPages) {
+        mWindowPages = Math.max(windowPages, 0);
+    }
+
+    /**
+     * 设置使用此数据的Adapter,用于通知被释放和重新加载的范围
+     * @param adapter 被包装的Adapter
+     */
+    public void setAdapter(RecyclerView.Adapter adapter) {
+        mAdapter = adapter;
+    }
+
+    /**
+     * @return 数据总数,作为Adapter的item count
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    /**
+     * @param position 位置
+     * @return 数据,如果所在的页被释放了则返回null,需要显示占位视图
+     */
+    public E get(int position) {
+        final List<E> page = mPages.get(position / mPageSize);
+        return page == null ? null : page.get(position % mPageSize);
+    }
+
+    /**
+     * @param position 位置
+     * @return true则表示所在的页被释放了
+     */
+    public boolean isPlaceholder(int position) {
+        return mPages.get(position / mPageSize) == null;
+    }
+
+    /**
+     * 在末尾追加一页,除最后一页外每页的数量都应该等于pageSize
+     * @param items 数据
+     */
+    public void appendPage(List<E> items) {
+        if (mCount % mPageSize != 0) {
+            throw new IllegalStateException("the last page is not full");
+        }
+        final int page = mCount / mPageSize;
+        mPages.put(page, items);
+        final int start = mCount;
+        mCount += items.size();
+        if (mAdapter != null) {
+            mAdapter.notifyItemRangeInserted(start, items.size());
+        }
+    }
+
+    /**
+     * 重新加载被释放的页完成
+     * @param page 页码,从0开始
+     * @param items 数据
+     */
+    public void onPageReloaded(int page, List<E> items) {
+        if (!mReloading.remove(page)) {
+            return;
+        }
+        mPages.put(page, items);
+        if (mAdapter != null) {
+            final int start = page * mPageSize;
+            mAdapter.notifyItemRangeChanged(start, Math.min(mPageSize, mCount - start));
+        }
+    }
+
+    /**
+     * 清空所有数据,例如加载更新时
+     */
+    public void clear() {
+        mPages.clear();
+        mReloading.clear();
+        mCount = 0;
+        if (mAdapter != null) {
+            mAdapter.notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * 可见区域改变了,释放窗口以外的页,重新加载窗口以内被释放的页
+     * @param firstVisible 第一个可见的位置
+     * @param lastVisible 最后一个可见的位置
+     */
+    public void onVisibleRangeChanged(int firstVisible, int lastVisible) {
+        if (mCount == 0 || firstVisible < 0 || lastVisible < firstVisible) {
+            return;
+        }
+        final int firstPage = Math.max(firstVisible / mPageSize - mWindowPages, 0);
+        final int lastPage = Math.min(lastVisible / mPageSize + mWindowPages,
+                (mCount - 1) / mPageSize);
+        // 只有数据变为了占位,不需要重新绑定不可见的item,等到再次可见时绑定
+        mPages.headMap(firstPage).clear();
+        mPages.tailMap(lastPage, false).clear();
+        mReloading.headSet(firstPage).clear();
+        mReloading.tailSet(lastPage, false).clear();
+        for (int page = firstPage; page <= lastPage; page++) {
+            if (!mPages.containsKey(page) && !mReloading.contains(page)) {
+                mReloading.add(page);
+                mPageLoader.onReloadPage(page, page * mPageSize,
+                        Math.min(mPageSize, mCount - page * mPageSize));
+            }
+        }
+    }
+
+    /**
+     * 重新加载被释放的页
+     */
+    public interface PageLoader {
+        /**
+         * 加载完成后调用{@link #onPageReloaded(int, List)}
+         * @param page 页码,从0开始
+         * @param positionStart 第一个item的位置
+         * @param itemCount 数量
+         */
+        void onReloadPage(int page, int positionStart, int itemCount);
+    }
+}
@@ -7,6 +7,7 @@ import android.view.View;
 import android.widget.HorizontalScrollView;
 
 import com.droidworker.pulltoloadview.PullToLoadBaseView;
+import com.droidworker.pulltoloadview.PullToLoadConfig;
 import com.droidworker.pulltoloadview.constant.Direction;
 import com.droidworker.pulltoloadview.constant.Orientation;
 
@@ -23,6 +24,10 @@ public class PTLHorizontalScrollView extends PullToLoadBaseView<HorizontalScroll
         super(context, attrs);
     }
 
+    public PTLHorizontalScrollView(Context context, PullToLoadConfig config) {
+        super(context, config);
+    }
+
     @Override
     public boolean canScrollVertical(Direction direction) {
         return false;
@@ -7,6 +7,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 
 import com.droidworker.pulltoloadview.PullToLoadBaseView;
+import com.droidworker.pulltoloadview.PullToLoadConfig;
 import com.droidworker.pulltoloadview.constant.Direction;
 import com.droidworker.pulltoloadview.constant.Orientation;
 
@@ -23,6 +24,10 @@ public class PTLNestedScrollView extends PullToLoadBaseView<NestedScrollView> {
         super(context, attrs);
     }
 
+    public PTLNestedScrollView(Context context, PullToLoadConfig config) {
+        super(context, config);
+    }
+
     @Override
     public boolean canScrollVertical(Direction direction) {
         // 参照ViewCompat中的方法
@@ -0,0 +1,106 @@
+package com.droidworker.pulltoloadview;
+
+import com.droidworker.pulltoloadview.constant.FramePhase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link FrameMetricsRecorder}的直方图和分位数
+ */
+public class FrameMetricsRecorderTest {
+    private static final long MS = 1000000L;
+    private FrameMetricsRecorder mRecorder;
+    private long mFrameTime;
+
+    @Before
+    public void setUp() throws Exception {
+        mRecorder = new FrameMetricsRecorder(16 * MS);
+        mFrameTime = 1000 * MS;
+    }
+
+    @Test
+    public void firstFrame_isOnlyStartingPoint() throws Exception {
+        mRecorder.setPhaseActive(FramePhase.DRAGGING, true);
+        mRecorder.onFrame(mFrameTime);
+
+        assertEquals(0, mRecorder.getStats(FramePhase.DRAGGING).getFrameCount());
+    }
+
+    @Test
+    public void percentiles_fromHistogram() throws Exception {
+        mRecorder.setPhaseActive(FramePhase.DRAGGING, true);
+        mRecorder.onFrame(mFrameTime);
+        frames(90, 16);
+        frames(9, 33);
+        frames(1, 100);
+
+        final FrameStats stats = mRecorder.getStats(FramePhase.DRAGGING);
+        assertEquals(100, stats.getFrameCount());
+        assertEquals(16, stats.getP50());
+        assertEquals(16, stats.getP90());
+        assertEquals(33, stats.getP99());
+        assertEquals(100, stats.getMax());
+        // 33ms丢了1帧,100ms丢了5帧
+        assertEquals(10, stats.getJankCount());
+        assertEquals(14, stats.getDroppedFrameCount());
+    }
+
+    @Test
+    public void longFrames_areCappedToLastBucket() throws Exception {
+        mRecorder.setPhaseActive(FramePhase.SETTLING, true);
+        mRecorder.onFrame(mFrameTime);
+        frames(1, 500);
+
+        final FrameStats stats = mRecorder.getStats(FramePhase.SETTLING);
+        assertEquals(127, stats.getMax());
+        assertEquals(127, stats.getP50());
+    }
+
+    @Test
+    public void onlyActivePhasesRecord() throws Exception {
+        mRecorder.setPhaseActive(FramePhase.DRAGGING, true);
+        mRecorder.onFrame(mFrameTime);
+        frames(2, 16);
+        mRecorder.setPhaseActive(FramePhase.LOADING, true);
+        frames(3, 16);
+        mRecorder.setPhaseActive(FramePhase.DRAGGING, false);
+        frames(1, 16);
+
+        assertEquals(5, mRecorder.getStats(FramePhase.DRAGGING).getFrameCount());
+        assertEquals(4, mRecorder.getStats(FramePhase.LOADING).getFrameCount());
+        assertEquals(0, mRecorder.getStats(FramePhase.SETTLING).getFrameCount());
+    }
+
+    @Test
+    public void enterPhaseForFrames_exitsAfterFrameCount() throws Exception {
+        mRecorder.enterPhaseForFrames(FramePhase.AUTO_LOAD_COMMIT, 3);
+        mRecorder.onFrame(mFrameTime);
+        frames(5, 16);
+
+        assertEquals(3, mRecorder.getStats(FramePhase.AUTO_LOAD_COMMIT).getFrameCount());
+    }
+
+    @Test
+    public void reset_clearsStats() throws Exception {
+        mRecorder.setPhaseActive(FramePhase.DRAGGING, true);
+        mRecorder.onFrame(mFrameTime);
+        frames(3, 40);
+        mRecorder.reset();
+
+        final FrameStats stats = mRecorder.getStats(FramePhase.DRAGGING);
+        assertEquals(0, stats.getFrameCount());
+        assertEquals(0, stats.getJankCount());
+        assertEquals(0, stats.getP50());
+        assertEquals(0, stats.getMax());
+    }
+
+    private void frames(int count, long durationMs) {
+        for (int i = 0; i < count; i++) {
+            mFrameTime += durationMs * MS;
+            mRecorder.onFrame(mFrameTime);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.droidworker.pulltoloadview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link PagePipeline}的请求调度和按顺序交付
+ */
+public class PagePipelineTest {
+    private final List<PagePipeline.PageRequest<String>> mRequests = new ArrayList<>();
+    private final List<String> mReady = new ArrayList<>();
+    private final List<Integer> mFailed = new ArrayList<>();
+    /**
+     * 模拟主线程的消息队列,结果在{@link #runMainThread()}时才处理
+     */
+    private final List<Runnable> mMainQueue = new ArrayList<>();
+    private PagePipeline<String> mPipeline;
+
+    @Before
+    public void setUp() throws Exception {
+        mPipeline = new PagePipeline<>(1, new PagePipeline.PageFetcher<String>() {
+            @Override
+            public void fetch(PagePipeline.PageRequest<String> request) {
+                mRequests.add(request);
+            }
+        }, new PagePipeline.PageConsumer<String>() {
+            @Override
+            public void onPageReady(int page, String data) {
+                mReady.add(page + ":" + data);
+            }
+
+            @Override
+            public void onPageFailed(int page) {
+                mFailed.add(page);
+            }
+        }, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mMainQueue.add(command);
+            }
+        });
+    }
+
+    @Test
+    public void requestMore_fillsUpToMaxInFlight() throws Exception {
+        mPipeline.setMaxInFlight(3);
+        assertTrue(mPipeline.requestMore());
+
+        assertEquals(3, mPipeline.getInFlightCount());
+        assertPages(1, 2, 3);
+
+        // 已经满了,不会发出新的请求
+        assertTrue(mPipeline.requestMore());
+        assertPages(1, 2, 3);
+    }
+
+    @Test
+    public void outOfOrderDelivery_isAppliedInPageOrder() throws Exception {
+        mPipeline.requestMore();
+        assertPages(1, 2);
+
+        request(2).deliver("b");
+        runMainThread();
+        assertTrue(mReady.isEmpty());
+        // 第2页缓存起来,让出的位置请求第3页
+        assertPages(1, 2, 3);
+
+        request(3).deliver("c");
+        runMainThread();
+        assertTrue(mReady.isEmpty());
+
+        request(1).deliver("a");
+        runMainThread();
+        assertEquals(list("1:a", "2:b", "3:c"), mReady);
+        assertPages(1, 2, 3, 4, 5);
+        assertEquals(2, mPipeline.getInFlightCount());
+    }
+
+    @Test
+    public void deliver_isHandledOnMainThread() throws Exception {
+        mPipeline.requestMore();
+        request(1).deliver("a");
+
+        assertTrue(mReady.isEmpty());
+        runMainThread();
+        assertEquals(list("1:a"), mReady);
+    }
+
+    @Test
+    public void failure_cancelsLaterPagesAndRetriesFromFailedPage() throws Exception {
+        mPipeline.requestMore();
+        request(2).deliver("b");
+        runMainThread();
+        final PagePipeline.PageRequest<String> third = request(3);
+
+        request(1).fail();
+        runMainThread();
+        assertEquals(list(1), mFailed);
+        assertTrue(third.isCancelled());
+        assertEquals(0, mPipeline.getInFlightCount());
+
+        // 被取消的请求返回的结果被丢弃
+        third.deliver("c");
+        runMainThread();
+        assertTrue(mReady.isEmpty());
+
+        mRequests.clear();
+        mPipeline.requestMore();
+        assertPages(1, 2);
+        request(1).deliver("a");
+        request(2).deliver("b");
+        runMainThread();
+        assertEquals(list("1:a", "2:b"), mReady);
+    }
+
+    @Test
+    public void restart_cancelsAndStartsFromFirstPage() throws Exception {
+        mPipeline.requestMore();
+        final PagePipeline.PageRequest<String> first = request(1);
+        request(2).deliver("b");
+        runMainThread();
+
+        mPipeline.restart();
+        assertTrue(first.isCancelled());
+        assertEquals(0, mPipeline.getInFlightCount());
+        first.deliver("stale");
+        runMainThread();
+        assertTrue(mReady.isEmpty());
+
+        mRequests.clear();
+        mPipeline.requestMore();
+        assertPages(1, 2);
+        assertNotSame(first, request(1));
+    }
+
+    @Test
+    public void reset_startsFromGivenPage() throws Exception {
+        mPipeline.reset(5);
+        mPipeline.requestMore();
+
+        assertPages(5, 6);
+    }
+
+    @Test
+    public void setEndReached_cancelsLaterPagesAndCompletesAfterLastDelivery() throws Exception {
+        final int[] endReached = new int[1];
+        mPipeline.setOnEndReachedCallback(new Runnable() {
+            @Override
+            public void run() {
+                endReached[0]++;
+            }
+        });
+        mPipeline.setMaxInFlight(3);
+        mPipeline.requestMore();
+        final PagePipeline.PageRequest<String> third = request(3);
+
+        mPipeline.setEndReached(2);
+        assertEquals(1, endReached[0]);
+        assertTrue(third.isCancelled());
+        // 第1页和第2页还会交付
+        assertTrue(mPipeline.requestMore());
+
+        request(2).deliver("b");
+        request(1).deliver("a");
+        runMainThread();
+        assertEquals(list("1:a", "2:b"), mReady);
+        assertPages(1, 2, 3);
+        assertFalse(mPipeline.requestMore());
+    }
+
+    @Test
+    public void reset_clearsEndReached() throws Exception {
+        mPipeline.setEndReached(0);
+        assertFalse(mPipeline.requestMore());
+
+        mPipeline.restart();
+        assertTrue(mPipeline.requestMore());
+        assertPages(1, 2);
+    }
+
+    private void runMainThread() {
+        while (!mMainQueue.isEmpty()) {
+            mMainQueue.remove(0).run();
+        }
+    }
+
+    private PagePipeline.PageRequest<String> request(int page) {
+        for (int i = mRequests.size() - 1; i >= 0; i--) {
+            if (mRequests.get(i).getPage() == page) {
+                return mRequests.get(i);
+            }
+        }
+        throw new AssertionError("page " + page + " not requested");
+    }
+
+    private void assertPages(Integer... pages) {
+        final List<Integer> requested = new ArrayList<>();
+        for (PagePipeline.PageRequest<String> request : mRequests) {
+            requested.add(request.getPage());
+        }
+        assertEquals(list(pages), requested);
+    }
+
+    @SafeVarargs
+    private static <T> List<T> list(T... items) {
+        final List<T> list = new ArrayList<>();
+        for (T item : items) {
+            list.add(item);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,162 @@
+package com.droidworker.pulltoloadview;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link PageSnapshotStore}的文件格式
+ */
+public class PageSnapshotStoreTest {
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+    private PageSnapshotStore mStore;
+
+    @Before
+    public void setUp() throws Exception {
+        mFile = new File(new File(mFolder.getRoot(), "ptl_snapshot"), "test.bin");
+        mStore = new PageSnapshotStore(mFile);
+    }
+
+    @Test
+    public void read_withoutSnapshot_returnsNull() throws Exception {
+        assertNull(mStore.read());
+    }
+
+    @Test
+    public void roundTrip_keepsPagesInOrder() throws Exception {
+        final List<byte[]> pages = Arrays.asList(bytes(3, 1), new byte[0], bytes(17, 2));
+        final long before = System.currentTimeMillis();
+        assertTrue(mStore.write(pages));
+
+        final PageSnapshotStore.Snapshot snapshot = mStore.read();
+        assertNotNull(snapshot);
+        assertEquals(pages.size(), snapshot.getPages().size());
+        for (int i = 0; i < pages.size(); i++) {
+            assertArrayEquals(pages.get(i), snapshot.getPages().get(i));
+        }
+        assertTrue(snapshot.getSavedAt() >= before);
+        assertTrue(snapshot.getSavedAt() <= System.currentTimeMillis());
+    }
+
+    @Test
+    public void roundTrip_emptySnapshot() throws Exception {
+        assertTrue(mStore.write(Collections.<byte[]>emptyList()));
+
+        final PageSnapshotStore.Snapshot snapshot = mStore.read();
+        assertNotNull(snapshot);
+        assertTrue(snapshot.getPages().isEmpty());
+    }
+
+    @Test
+    public void roundTrip_largeSnapshotIsMapped() throws Exception {
+        // 超过内存映射的阈值
+        final List<byte[]> pages = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            pages.add(bytes(32 * 1024, i));
+        }
+        assertTrue(mStore.write(pages));
+
+        final PageSnapshotStore.Snapshot snapshot = mStore.read();
+        assertNotNull(snapshot);
+        for (int i = 0; i < pages.size(); i++) {
+            assertArrayEquals(pages.get(i), snapshot.getPages().get(i));
+        }
+    }
+
+    @Test
+    public void write_replacesPreviousSnapshot() throws Exception {
+        assertTrue(mStore.write(Arrays.asList(bytes(8, 1), bytes(8, 2))));
+        assertTrue(mStore.write(Collections.singletonList(bytes(4, 3))));
+
+        final PageSnapshotStore.Snapshot snapshot = mStore.read();
+        assertNotNull(snapshot);
+        assertEquals(1, snapshot.getPages().size());
+        assertArrayEquals(bytes(4, 3), snapshot.getPages().get(0));
+        assertFalse(new File(mFile.getParentFile(), mFile.getName() + ".tmp").exists());
+    }
+
+    @Test
+    public void read_versionMismatch_returnsNullAndDeletes() throws Exception {
+        assertTrue(mStore.write(Collections.singletonList(bytes(8, 1))));
+        // magic之后是版本号
+        overwriteInt(4, 2);
+
+        assertNull(mStore.read());
+        assertFalse(mFile.exists());
+    }
+
+    @Test
+    public void read_badMagic_returnsNullAndDeletes() throws Exception {
+        assertTrue(mStore.write(Collections.singletonList(bytes(8, 1))));
+        overwriteInt(0, 0);
+
+        assertNull(mStore.read());
+        assertFalse(mFile.exists());
+    }
+
+    @Test
+    public void read_truncatedPage_returnsNull() throws Exception {
+        assertTrue(mStore.write(Collections.singletonList(bytes(8, 1))));
+        final RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.setLength(file.length() - 1);
+        } finally {
+            file.close();
+        }
+
+        assertNull(mStore.read());
+        assertFalse(mFile.exists());
+    }
+
+    @Test
+    public void read_truncatedHeader_returnsNull() throws Exception {
+        assertTrue(mStore.write(Collections.singletonList(bytes(8, 1))));
+        final RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.setLength(10);
+        } finally {
+            file.close();
+        }
+
+        assertNull(mStore.read());
+    }
+
+    @Test
+    public void clear_deletesSnapshot() throws Exception {
+        assertTrue(mStore.write(Collections.singletonList(bytes(8, 1))));
+        mStore.clear();
+
+        assertNull(mStore.read());
+    }
+
+    private void overwriteInt(long offset, int value) throws Exception {
+        final RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.seek(offset);
+            file.writeInt(value);
+        } finally {
+            file.close();
+        }
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (seed * 31 + i);
+        }
+        return bytes;
+    }
+}
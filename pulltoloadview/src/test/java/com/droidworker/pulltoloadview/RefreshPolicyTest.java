@@ -0,0 +1,47 @@
+package com.droidworker.pulltoloadview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link RefreshPolicy}的间隔和有效期计算
+ */
+public class RefreshPolicyTest {
+    @Test
+    public void isThrottled_withinMinInterval() throws Exception {
+        final RefreshPolicy policy = new RefreshPolicy(1000, 0);
+
+        assertTrue(policy.isThrottled(5000, 5000));
+        assertTrue(policy.isThrottled(5000, 5999));
+        assertFalse(policy.isThrottled(5000, 6000));
+    }
+
+    @Test
+    public void isThrottled_neverRefreshed() throws Exception {
+        assertFalse(new RefreshPolicy(1000, 0).isThrottled(0, 500));
+    }
+
+    @Test
+    public void isStale_afterTtl() throws Exception {
+        final RefreshPolicy policy = new RefreshPolicy(0, 60000);
+
+        assertFalse(policy.isStale(10000, 69999));
+        assertTrue(policy.isStale(10000, 70000));
+        assertFalse(policy.isStale(0, 70000));
+    }
+
+    @Test
+    public void isStale_zeroTtlNeverExpires() throws Exception {
+        assertFalse(new RefreshPolicy(0, 0).isStale(1, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void negativeValues_areClampedToZero() throws Exception {
+        final RefreshPolicy policy = new RefreshPolicy(-1, -1);
+
+        assertEquals(0, policy.getMinRefreshInterval());
+        assertEquals(0, policy.getTtl());
+        assertFalse(policy.isThrottled(1000, 1000));
+    }
+}
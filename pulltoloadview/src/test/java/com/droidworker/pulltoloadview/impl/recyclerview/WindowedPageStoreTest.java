@@ -0,0 +1,143 @@
+package com.droidworker.pulltoloadview.impl.recyclerview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link WindowedPageStore}的窗口释放和重新加载
+ */
+public class WindowedPageStoreTest {
+    private static final int PAGE_SIZE = 10;
+    /**
+     * 每次重新加载的请求,依次为页码,第一个位置和数量
+     */
+    private final List<int[]> mReloads = new ArrayList<>();
+    private WindowedPageStore<String> mStore;
+
+    @Before
+    public void setUp() throws Exception {
+        mStore = new WindowedPageStore<>(PAGE_SIZE, new WindowedPageStore.PageLoader() {
+            @Override
+            public void onReloadPage(int page, int positionStart, int itemCount) {
+                mReloads.add(new int[] { page, positionStart, itemCount });
+            }
+        });
+        mStore.setWindowPages(1);
+    }
+
+    @Test
+    public void appendPage_addsItems() throws Exception {
+        mStore.appendPage(page(0, PAGE_SIZE));
+        mStore.appendPage(page(1, 5));
+
+        assertEquals(15, mStore.getCount());
+        assertEquals("0-3", mStore.get(3));
+        assertEquals("1-4", mStore.get(14));
+        assertFalse(mStore.isPlaceholder(14));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void appendPage_afterPartialPage_throws() throws Exception {
+        mStore.appendPage(page(0, 5));
+        mStore.appendPage(page(1, PAGE_SIZE));
+    }
+
+    @Test
+    public void visibleRangeChanged_evictsPagesOutsideWindow() throws Exception {
+        appendPages(6);
+
+        // 可见第3页,保留第2到第4页
+        mStore.onVisibleRangeChanged(30, 39);
+
+        assertTrue(mStore.isPlaceholder(0));
+        assertNull(mStore.get(15));
+        assertEquals("2-0", mStore.get(20));
+        assertEquals("4-9", mStore.get(49));
+        assertTrue(mStore.isPlaceholder(50));
+        // 数量和位置不变
+        assertEquals(60, mStore.getCount());
+        assertTrue(mReloads.isEmpty());
+    }
+
+    @Test
+    public void visibleRangeChanged_reloadsEvictedPagesInsideWindow() throws Exception {
+        appendPages(6);
+        mStore.onVisibleRangeChanged(50, 59);
+        assertTrue(mStore.isPlaceholder(0));
+
+        mStore.onVisibleRangeChanged(5, 12);
+        assertReloads(0, 1, 2);
+        // 还在加载中的页不会重复请求
+        mStore.onVisibleRangeChanged(5, 12);
+        assertReloads(0, 1, 2);
+
+        mStore.onPageReloaded(1, page(1, PAGE_SIZE));
+        assertFalse(mStore.isPlaceholder(10));
+        assertEquals("1-2", mStore.get(12));
+        assertTrue(mStore.isPlaceholder(0));
+    }
+
+    @Test
+    public void reload_lastPartialPage_requestsRemainingCount() throws Exception {
+        appendPages(3);
+        mStore.appendPage(page(3, 4));
+        mStore.onVisibleRangeChanged(0, 5);
+        assertTrue(mStore.isPlaceholder(30));
+
+        mStore.onVisibleRangeChanged(30, 33);
+        assertEquals(2, mReloads.size());
+        assertArrayEquals(new int[] { 2, 20, PAGE_SIZE }, mReloads.get(0));
+        assertArrayEquals(new int[] { 3, 30, 4 }, mReloads.get(1));
+    }
+
+    @Test
+    public void reloadedPage_outsideWindow_isDropped() throws Exception {
+        appendPages(6);
+        mStore.onVisibleRangeChanged(50, 59);
+        mStore.onVisibleRangeChanged(0, 9);
+        assertReloads(0, 1);
+
+        // 结果返回前又滚走了,不再需要这一页
+        mStore.onVisibleRangeChanged(50, 59);
+        mStore.onPageReloaded(0, page(0, PAGE_SIZE));
+
+        assertTrue(mStore.isPlaceholder(0));
+    }
+
+    @Test
+    public void clear_removesAllPages() throws Exception {
+        appendPages(2);
+        mStore.clear();
+
+        assertEquals(0, mStore.getCount());
+        mStore.appendPage(page(0, PAGE_SIZE));
+        assertEquals("0-0", mStore.get(0));
+    }
+
+    private void appendPages(int count) {
+        for (int i = 0; i < count; i++) {
+            mStore.appendPage(page(i, PAGE_SIZE));
+        }
+    }
+
+    private void assertReloads(int... pages) {
+        assertEquals(pages.length, mReloads.size());
+        for (int i = 0; i < pages.length; i++) {
+            assertEquals(pages[i], mReloads.get(i)[0]);
+            assertEquals(pages[i] * PAGE_SIZE, mReloads.get(i)[1]);
+        }
+    }
+
+    private static List<String> page(int page, int size) {
+        final List<String> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(page + "-" + i);
+        }
+        return items;
+    }
+}